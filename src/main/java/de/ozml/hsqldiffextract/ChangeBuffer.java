@@ -0,0 +1,68 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Sink which encodes the changes in the format of an output file and keeps them in memory until
+ * they are written to the output.
+ */
+public abstract class ChangeBuffer implements ChangeSink {
+
+	protected int count;
+
+	/**
+	 * Returns the number of changes held.
+	 * @return
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public abstract void insert(Row row);
+
+	@Override
+	public abstract void update(Row originalRow, Row changedRow);
+
+	@Override
+	public abstract void delete(Row row);
+
+	/**
+	 * Returns the approximate number of bytes held.
+	 * @return
+	 */
+	public abstract int getSize();
+
+	/**
+	 * Accepts a row whose former values are unknown, so all columns apart from the primary key
+	 * columns are taken as changed.
+	 * @param row
+	 * @return false if the table has no other columns and nothing was added
+	 */
+	public abstract boolean replace(Row row);
+
+	/**
+	 * Accepts a deleted row of which only the primary key values are known, given in the order
+	 * of the table definition.
+	 * @param table
+	 * @param keyValues
+	 */
+	public abstract void delete(Table table, String[] keyValues);
+
+	/**
+	 * Writes the changes held to the output.
+	 * @param out
+	 * @throws IOException
+	 */
+	public abstract void writeTo(OutputStream out) throws IOException;
+
+	/**
+	 * Removes all changes, so the buffer can be reused.
+	 */
+	public abstract void clear();
+
+}
\ No newline at end of file
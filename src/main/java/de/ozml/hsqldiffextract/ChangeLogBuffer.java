@@ -0,0 +1,299 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.parser.ChangeLogReader;
+
+/**
+ * Buffer which holds the changes as records of a binary change log, see {@link ChangeLogReader}
+ * for the format. The records are encoded into a growing byte array, the values are appended to
+ * a reused buffer and encoded as UTF-8 without creating strings.
+ */
+public class ChangeLogBuffer extends ChangeBuffer {
+
+	private int tableId;
+	private int columnCount;
+	private byte[] bytes = new byte[1024];
+	private int size;
+	private byte[] record = new byte[256];
+	private int recordSize;
+	private StringBuilder value = new StringBuilder();
+	private Table keyTable;
+	private int[] keyIndices;
+
+	/**
+	 * Creates a buffer of changes of the table with the specified id and column count.
+	 * @param tableId
+	 * @param columnCount
+	 */
+	public ChangeLogBuffer(int tableId, int columnCount) {
+		this.tableId = tableId;
+		this.columnCount = columnCount;
+	}
+
+	/**
+	 * Writes the start of a change log together with the table record of the table.
+	 * @param out
+	 * @param tableId
+	 * @param table
+	 * @throws IOException
+	 */
+	public static void writeHeader(OutputStream out, int tableId, Table table) throws IOException {
+		ChangeLogBuffer header = new ChangeLogBuffer(tableId, 0);
+		header.recordSize = 0;
+		header.writeInt(tableId);
+		header.writeString(table.getName());
+		String[] columnNames = table.getColumnNames();
+		header.writeInt(columnNames.length);
+		for(String columnName : columnNames){
+			header.writeString(columnName);
+		}
+		int[] pkIndices = table.getPrimaryKeyIndices();
+		header.writeInt(pkIndices.length);
+		for(int pkIndex : pkIndices){
+			header.writeInt(pkIndex);
+		}
+		header.endRecord(ChangeLogReader.TABLE);
+
+		out.write(ChangeLogReader.MAGIC);
+		out.write(ChangeLogReader.VERSION);
+		header.writeTo(out);
+	}
+
+	/**
+	 * Returns the number of bytes held.
+	 * @return
+	 */
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public void insert(Row row) {
+		beginRecord(row);
+		int valueCount = Math.min(row.getValueCount(), columnCount);
+		writeMask(valueCount);
+		for(int i = 0; i < valueCount; i++){
+			writeValue(row, i);
+		}
+		endRecord(ChangeLogReader.INSERT);
+	}
+
+	@Override
+	public void update(Row originalRow, Row changedRow) {
+		beginRecord(changedRow);
+		int maskOffset = writeMask(0);
+		for(int i = 0; i < columnCount; i++){
+			if(!originalRow.isValueEqual(i, changedRow)){
+				record[maskOffset + (i >> 3)] |= 1 << (i & 7);
+				writeValue(changedRow, i);
+			}
+		}
+		endRecord(ChangeLogReader.UPDATE);
+	}
+
+	@Override
+	public void delete(Row row) {
+		beginRecord(row);
+		writeMask(0);
+		endRecord(ChangeLogReader.DELETE);
+	}
+
+	@Override
+	public boolean replace(Row row) {
+		int[] pkIndices = getKeyIndices(row.getTable());
+		if(pkIndices.length >= columnCount){
+			return false;
+		}
+
+		beginRecord(row);
+		int maskOffset = writeMask(columnCount);
+		for(int pkIndex : pkIndices){
+			record[maskOffset + (pkIndex >> 3)] &= ~(1 << (pkIndex & 7));
+		}
+		for(int i = 0; i < columnCount; i++){
+			if((record[maskOffset + (i >> 3)] & (1 << (i & 7))) != 0){
+				writeValue(row, i);
+			}
+		}
+		endRecord(ChangeLogReader.UPDATE);
+
+		return true;
+	}
+
+	@Override
+	public void delete(Table table, String[] keyValues) {
+		recordSize = 0;
+		writeInt(tableId);
+		for(String keyValue : keyValues){
+			value.setLength(0);
+			value.append(keyValue);
+			writeValue();
+		}
+		writeMask(0);
+		endRecord(ChangeLogReader.DELETE);
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(bytes, 0, size);
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		count = 0;
+	}
+
+	/**
+	 * Starts a change record of the row with the table id and the primary key values.
+	 * @param row
+	 */
+	private void beginRecord(Row row) {
+		recordSize = 0;
+		writeInt(tableId);
+		for(int pkIndex : getKeyIndices(row.getTable())){
+			writeValue(row, pkIndex);
+		}
+	}
+
+	/**
+	 * Appends the current record, preceded by the tag and the payload length, to the buffer.
+	 * @param tag
+	 */
+	private void endRecord(int tag) {
+		int length = recordSize;
+		ensureCapacity(1 + 5 + length);
+		bytes[size++] = (byte) tag;
+		int v = length;
+		while(v >= 0x80){
+			bytes[size++] = (byte) (v | 0x80);
+			v >>>= 7;
+		}
+		bytes[size++] = (byte) v;
+		System.arraycopy(record, 0, bytes, size, length);
+		size += length;
+		if(tag != ChangeLogReader.TABLE){
+			count++;
+		}
+	}
+
+	/**
+	 * Writes the bitmask of the columns with the bits of the leading columns set.
+	 * @param setCount number of leading columns set
+	 * @return offset of the bitmask within the record
+	 */
+	private int writeMask(int setCount) {
+		int maskOffset = recordSize;
+		int maskSize = (columnCount + 7) / 8;
+		ensureRecordCapacity(maskSize);
+		Arrays.fill(record, maskOffset, maskOffset + maskSize, (byte) 0);
+		for(int i = 0; i < setCount; i++){
+			record[maskOffset + (i >> 3)] |= 1 << (i & 7);
+		}
+		recordSize += maskSize;
+
+		return maskOffset;
+	}
+
+	private void writeValue(Row row, int index) {
+		value.setLength(0);
+		row.appendValue(index, value);
+		writeValue();
+	}
+
+	/**
+	 * Writes the content of the value buffer as string. The UTF-8 length is determined before,
+	 * unpaired surrogates are replaced by '?'.
+	 */
+	private void writeValue() {
+		int length = 0;
+		int end = value.length();
+		for(int i = 0; i < end; i++){
+			char c = value.charAt(i);
+			if(c < 0x80){
+				length++;
+			} else if(c < 0x800){
+				length += 2;
+			} else if(Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))){
+				length += 4;
+				i++;
+			} else if(Character.isSurrogate(c)){
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+
+		writeInt(length);
+		ensureRecordCapacity(length);
+		for(int i = 0; i < end; i++){
+			char c = value.charAt(i);
+			if(c < 0x80){
+				record[recordSize++] = (byte) c;
+			} else if(c < 0x800){
+				record[recordSize++] = (byte) (0xc0 | (c >> 6));
+				record[recordSize++] = (byte) (0x80 | (c & 0x3f));
+			} else if(Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))){
+				int cp = Character.toCodePoint(c, value.charAt(++i));
+				record[recordSize++] = (byte) (0xf0 | (cp >> 18));
+				record[recordSize++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+				record[recordSize++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+				record[recordSize++] = (byte) (0x80 | (cp & 0x3f));
+			} else if(Character.isSurrogate(c)){
+				record[recordSize++] = '?';
+			} else {
+				record[recordSize++] = (byte) (0xe0 | (c >> 12));
+				record[recordSize++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				record[recordSize++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+	}
+
+	private void writeString(String s) {
+		value.setLength(0);
+		value.append(s);
+		writeValue();
+	}
+
+	private void writeInt(int v) {
+		ensureRecordCapacity(5);
+		while((v & ~0x7f) != 0){
+			record[recordSize++] = (byte) (v | 0x80);
+			v >>>= 7;
+		}
+		record[recordSize++] = (byte) v;
+	}
+
+	/**
+	 * Returns the primary key indices of the table, which are kept for the last table asked for.
+	 * @param table
+	 * @return
+	 */
+	private int[] getKeyIndices(Table table) {
+		if(table != keyTable){
+			keyTable = table;
+			keyIndices = table.getPrimaryKeyIndices();
+		}
+
+		return keyIndices;
+	}
+
+	private void ensureCapacity(int length) {
+		if(bytes.length < size + length){
+			bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+		}
+	}
+
+	private void ensureRecordCapacity(int length) {
+		if(record.length < recordSize + length){
+			record = Arrays.copyOf(record, Math.max(recordSize + length, record.length * 2));
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.IOException;
+
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.entity.Row;
+
+/**
+ * Receiver of the row changes determined for a key range, passed in key order.
+ */
+public interface ChangeSink {
+
+	/**
+	 * Accepts a row which exists only in the changed rows.
+	 * @param row
+	 * @throws IOException
+	 */
+	void insert(Row row) throws IOException;
+
+	/**
+	 * Accepts a row whose values differ between the two states.
+	 * @param originalRow
+	 * @param changedRow
+	 * @throws IOException
+	 */
+	void update(Row originalRow, Row changedRow) throws IOException;
+
+	/**
+	 * Accepts a row which exists only in the original rows.
+	 * @param row
+	 * @throws IOException
+	 */
+	void delete(Row row) throws IOException;
+
+	/**
+	 * Accepts the key position reached. The changes of all rows with lower keys are passed.
+	 * @param position
+	 * @throws IOException
+	 */
+	default void commit(IndexKey position) throws IOException {}
+
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import de.ozml.hsqldiffextract.common.ControlState;
+import de.ozml.hsqldiffextract.res.Res;
+
+/**
+ * Listens for control commands and applies them to a {@link ControlState}. Commands are read
+ * line by line from the standard input and from an optional control file, whose content is
+ * applied whenever it changes. The content of the control file at start is not applied, so a
+ * command left over from a former run has no effect. Both sources are polled, so the listener
+ * never blocks on input.
+ */
+public class ControlListener implements Runnable {
+
+	public static final String COMMAND_PAUSE = "pause";
+	public static final String COMMAND_RESUME = "resume";
+	public static final String COMMAND_STOP = "stop";
+
+	private static final long POLL_INTERVAL = 250;
+
+	private ControlState control;
+	private String controlFile;
+	private String fileCommand;
+	private StringBuilder pendingInput;
+	private Thread thread;
+	private volatile boolean isClosed;
+
+	public ControlListener(ControlState control, String controlFile) {
+		this.control = control;
+		this.controlFile = controlFile;
+		this.pendingInput = new StringBuilder();
+	}
+
+	/**
+	 * Starts listening on a background thread.
+	 */
+	public void open() {
+		if(thread == null){
+			fileCommand = readControlFile();
+			thread = new Thread(this, "control-listener");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops listening.
+	 */
+	public void close() {
+		isClosed = true;
+		if(thread != null){
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while(!isClosed){
+				pollInput();
+				pollControlFile();
+				Thread.sleep(POLL_INTERVAL);
+			}
+		} catch(InterruptedException e){}
+	}
+
+	/**
+	 * Applies the complete lines available on the standard input.
+	 */
+	private void pollInput() {
+		try {
+			int available = System.in.available();
+			if(available > 0){
+				byte[] buffer = new byte[available];
+				int read = System.in.read(buffer);
+				if(read > 0){
+					pendingInput.append(new String(buffer, 0, read, Charset.defaultCharset()));
+				}
+			}
+		} catch(IOException e){
+			return;
+		}
+
+		int lineEnd = pendingInput.indexOf("\n");
+		while(lineEnd != -1){
+			apply(pendingInput.substring(0, lineEnd));
+			pendingInput.delete(0, lineEnd + 1);
+			lineEnd = pendingInput.indexOf("\n");
+		}
+	}
+
+	/**
+	 * Applies the content of the control file if it changed since the last poll.
+	 */
+	private void pollControlFile() {
+		String command = readControlFile();
+		if(command != null && !command.equals(fileCommand)){
+			apply(command);
+		}
+		fileCommand = command;
+	}
+
+	/**
+	 * Returns the trimmed content of the control file or {@code null} if there is none.
+	 * @return
+	 */
+	private String readControlFile() {
+		if(controlFile == null){
+			return null;
+		}
+
+		try {
+			Path path = Paths.get(controlFile);
+			if(Files.exists(path)){
+				return new String(Files.readAllBytes(path), Charset.defaultCharset()).trim();
+			}
+		} catch(IOException e){}
+
+		return null;
+	}
+
+	/**
+	 * Applies the command to the control state.
+	 * @param command
+	 */
+	private void apply(String command) {
+		String name = command.trim().toLowerCase();
+		if(name.equals(COMMAND_PAUSE) && !control.isPaused() && !control.isStopped()){
+			System.out.println("\n" + Res.loadString("msg.controlpaused"));
+			control.pause();
+		} else if(name.equals(COMMAND_RESUME) && control.isPaused()){
+			System.out.println("\n" + Res.loadString("msg.controlresumed"));
+			control.start();
+		} else if(name.equals(COMMAND_STOP) && !control.isStopped()){
+			System.out.println("\n" + Res.loadString("msg.controlstopped"));
+			control.stop();
+		}
+	}
+
+}
\ No newline at end of file
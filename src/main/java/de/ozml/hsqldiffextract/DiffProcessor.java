@@ -1,16 +1,36 @@
 package de.ozml.hsqldiffextract;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Map;
-import java.util.Queue;
-import java.util.function.BiConsumer;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.common.ControlState;
 import de.ozml.hsqldiffextract.common.Controlable;
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.common.ParallelGzipOutputStream;
+import de.ozml.hsqldiffextract.common.PipelineMonitor;
+import de.ozml.hsqldiffextract.common.RowCursor;
 import de.ozml.hsqldiffextract.common.RowSource;
 import de.ozml.hsqldiffextract.common.RowUtil;
+import de.ozml.hsqldiffextract.common.RunJournal;
+import de.ozml.hsqldiffextract.common.StageQueue;
 import de.ozml.hsqldiffextract.common.Tuple;
 
 /**
@@ -18,18 +38,36 @@ import de.ozml.hsqldiffextract.common.Tuple;
  */
 public class DiffProcessor implements Controlable {
 
-	private static final int STATE_READY = 0;
-	private static final int STATE_CHECK_CREATED = 1;
-	private static final int STATE_CHECK_UPDATED = 2;
-	private static final int STATE_CHECK_DELETED = 3;
-	private static final int STATE_FINISHED = 4;
+	private static final int MIN_SHARD_SIZE = 10000;
+	private static final int CHECK_INTERVAL = 1024;
+	private static final int BATCH_SIZE = 256;
+	private static final int BATCH_QUEUE_CAPACITY = 16;
+	private static final long COMMIT_INTERVAL = 1000;
+	private static final int SPILL_SIZE = 1 << 22;
+	private static final Batch END_OF_BATCHES = new Batch(null, null);
 
-	private static final int PART_SIZE = 5000;
+	public static final String QUEUE_WRITE = "diff -> write";
 
 	private String tableName;
 	private String outputDir;
-	private BufferedWriter writer;
-	private Queue<Tuple<Row, Row>> queue;
+	private OutputFormat format = OutputFormat.Sql;
+	private Table table;
+	private int tableId;
+	private boolean isCompressed;
+	private ExecutorService compressionExecutor;
+	private String jdbcUrl;
+	private int jdbcBatchSize = JdbcSink.DEFAULT_BATCH_SIZE;
+	private int jdbcCommitInterval = JdbcSink.DEFAULT_COMMIT_INTERVAL;
+	private int[] appliedCounts;
+	private FileOutputStream output;
+	private OutputStream stream;
+	private int shardCount = 1;
+	private ExecutorService shardExecutor;
+	private IOException writeError;
+	private IOException failure;
+	private PipelineMonitor monitor = new PipelineMonitor();
+	private ControlState control = new ControlState();
+	private RunJournal journal;
 
 	public DiffProcessor(String tableName, String outputDir){
 		this.tableName = tableName;
@@ -52,204 +90,878 @@ public class DiffProcessor implements Controlable {
 		return outputDir;
 	}
 
+	/**
+	 * Returns the format of the output.
+	 * @return
+	 */
+	public OutputFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Sets the format of the output, which also determines the extension of the output file.
+	 * @param format
+	 */
+	public void setFormat(OutputFormat format) {
+		this.format = format;
+	}
+
+	/**
+	 * Returns the definition of the table.
+	 * @return
+	 */
+	public Table getTable() {
+		return table;
+	}
+
+	/**
+	 * Sets the definition of the table, which is written to the start of a change log output.
+	 * Required for the change log format.
+	 * @param table
+	 */
+	public void setTable(Table table) {
+		this.table = table;
+	}
+
+	/**
+	 * Returns the id of the table within the change log output.
+	 * @return
+	 */
+	public int getTableId() {
+		return tableId;
+	}
+
+	/**
+	 * Sets the id of the table within the change log output, so change logs of several tables
+	 * can be told apart.
+	 * @param tableId
+	 */
+	public void setTableId(int tableId) {
+		this.tableId = tableId;
+	}
+
+	/**
+	 * Checks whether the output is compressed.
+	 * @return
+	 */
+	public boolean isCompressed() {
+		return isCompressed;
+	}
+
+	/**
+	 * Sets whether the output is written in gzip format, see {@link ParallelGzipOutputStream}. The
+	 * blocks of the output are compressed by the compression executor, or if not set by one thread
+	 * per processor, and the extension .gz is appended to the name of the output file.
+	 * @param isCompressed
+	 */
+	public void setCompressed(boolean isCompressed) {
+		this.isCompressed = isCompressed;
+	}
+
+	/**
+	 * Returns the executor the blocks of a compressed output are compressed by.
+	 * @return
+	 */
+	public ExecutorService getCompressionExecutor() {
+		return compressionExecutor;
+	}
+
+	/**
+	 * Sets the executor the blocks of a compressed output are compressed by. An executor can be
+	 * shared by several processors.
+	 * @param compressionExecutor
+	 */
+	public void setCompressionExecutor(ExecutorService compressionExecutor) {
+		this.compressionExecutor = compressionExecutor;
+	}
+
+	/**
+	 * Returns the url of the database the changes are applied to.
+	 * @return
+	 */
+	public String getJdbcUrl() {
+		return jdbcUrl;
+	}
+
+	/**
+	 * Sets the url of the database the changes are applied to instead of writing them to an
+	 * output file, see {@link JdbcSink}. The jdbc driver must be on the class path. Tables are
+	 * not split into shards then.
+	 * @param jdbcUrl
+	 */
+	public void setJdbcUrl(String jdbcUrl) {
+		this.jdbcUrl = jdbcUrl;
+	}
+
+	/**
+	 * Sets the number of changes of an operation which are applied at once.
+	 * @param jdbcBatchSize
+	 */
+	public void setJdbcBatchSize(int jdbcBatchSize) {
+		this.jdbcBatchSize = jdbcBatchSize;
+	}
+
+	/**
+	 * Sets the number of changes after which the transaction of the applied changes is committed.
+	 * @param jdbcCommitInterval
+	 */
+	public void setJdbcCommitInterval(int jdbcCommitInterval) {
+		this.jdbcCommitInterval = jdbcCommitInterval;
+	}
+
+	/**
+	 * Returns the numbers of inserted, updated and deleted rows if the changes were applied to
+	 * a database, otherwise {@code null}.
+	 * @return
+	 */
+	public int[] getAppliedCounts() {
+		return appliedCounts;
+	}
+
+	/**
+	 * Returns the exception the processing failed with, or {@code null} if it did not fail.
+	 * @return
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Returns the number of shards a table is split into.
+	 * @return
+	 */
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	/**
+	 * Sets the number of shards a table is split into. The key space of the table is divided into
+	 * ranges of about equal row count, which are processed at the same time. Tables with less than
+	 * {@value #MIN_SHARD_SIZE} rows per shard are split into less shards.
+	 * @param shardCount
+	 */
+	public void setShardCount(int shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Returns the executor the shards are processed by.
+	 * @return
+	 */
+	public ExecutorService getShardExecutor() {
+		return shardExecutor;
+	}
+
+	/**
+	 * Sets the executor the shards are processed by. An executor can be shared by several processors,
+	 * so the number of threads does not grow with the number of tables processed at the same time.
+	 * If not set, an executor is created for each table.
+	 * @param shardExecutor
+	 */
+	public void setShardExecutor(ExecutorService shardExecutor) {
+		this.shardExecutor = shardExecutor;
+	}
+
+	/**
+	 * Returns the monitor of the pipeline queues.
+	 * @return
+	 */
+	public PipelineMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Sets the monitor of the pipeline queues.
+	 * @param monitor
+	 */
+	public void setMonitor(PipelineMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Returns the control state of the processing.
+	 * @return
+	 */
+	public ControlState getControl() {
+		return control;
+	}
+
+	/**
+	 * Sets the control state of the processing. A state can be shared by several processors
+	 * to control them together.
+	 * @param control
+	 */
+	public void setControl(ControlState control) {
+		this.control = control;
+	}
+
+	/**
+	 * Returns the journal the progress is recorded in.
+	 * @return
+	 */
+	public RunJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Sets the journal the progress is recorded in. If the journal holds a position of the table,
+	 * the processing continues at that position.
+	 * @param journal
+	 */
+	public void setJournal(RunJournal journal) {
+		this.journal = journal;
+	}
+
 	/**
 	 * Determines new created, updated and deleted rows between the two states given in the specified maps of table
-	 * rows. Corresponding sql statements are written to a automatically generated output file within the output 
-	 * directory. The name of the file corresponds to the table name passed to the constructor.
+	 * rows. Corresponding sql statements or change log records, depending on the format, are written to a automatically
+	 * generated output file within the output directory. The name of the file corresponds to the table name passed to
+	 * the constructor.
+	 * Both sources are walked side by side in key order, so all changes are determined within a single pass
+	 * and the statements are written in key order. If both sources keep row fingerprints, rows with equal
+	 * keys are only loaded when their fingerprints differ. If the table is split into shards, the statements
+	 * of each shard are buffered, beyond {@value #SPILL_SIZE} bytes within a temporary file, and written in
+	 * order of the key ranges, so the output equals the one of a single pass. Otherwise the statements are passed in batches to a writer stage through a bounded queue,
+	 * so determining the changes and writing them overlap.
+	 * The control state is checked every {@value #CHECK_INTERVAL} rows. While paused the processing waits,
+	 * if stopped it ends and the statements determined so far are written to the output, which then covers
+	 * the changes up to a key position.
+	 * If a journal is set, the key position reached is committed about every {@value #COMMIT_INTERVAL} ms
+	 * after the statements before are flushed. A compressed output is only flushed once at least a block
+	 * was written, so it does not consist of small gzip members. If the journal holds a position of the
+	 * table, the output is cut to the length committed with it and continued from that position.
+	 * If a jdbc url is set, the changes are applied to the database instead of being written, and the key
+	 * position of each commit of the transaction is committed to the journal.
+	 * The table is only recorded as completed in the journal if all changes were written and the output
+	 * was closed without failure. A failure is kept, see {@link #getFailure()}.
 	 * @param originalRows
 	 * @param changedRows
+	 * @return false if the processing was stopped or failed before all rows were processed
 	 */
-	public void process(RowSource originalRows, RowSource changedRows){
+	public boolean process(RowSource originalRows, RowSource changedRows){
+		boolean isCompleted = false;
+		Tuple<IndexKey, Long> position = journal != null ? journal.getPosition(tableName) : null;
+		IndexKey fromKey = position != null ? position.getV1() : null;
 		try{
-			// Check for new created entries
-			checkCreated(originalRows, changedRows);
+			if(jdbcUrl != null){
+				isCompleted = processApplied(originalRows, changedRows, fromKey);
+			} else {
+				List<IndexKey> bounds = buildShardBounds(originalRows, changedRows, fromKey);
+				if(position != null){
+					openOutput(position.getV2());
+				}
+				if(bounds.isEmpty()){
+					isCompleted = processPipelined(originalRows, changedRows, fromKey);
+				} else {
+					isCompleted = processShards(originalRows, changedRows, fromKey, bounds);
+				}
+			}
+		} catch(IOException e){
+			failure = e;
+		} catch(UncheckedIOException e){
+			// A row of a lazy source could not be read
+			failure = e.getCause();
+		} catch(IllegalStateException e){
+			// A row holds another number of values than the table has columns
+			failure = new IOException(e.getMessage(), e);
+		} finally{
+			try {
+				closeOutput();
+			} catch(IOException e){
+				if(failure == null){
+					failure = e;
+				}
+			}
+		}
+
+		if(failure != null){
+			failure.printStackTrace();
+			return false;
+		}
+		if(isCompleted && journal != null){
+			journal.complete(tableName);
+		}
 
-			// Check for updated entries
-			checkUpdated(originalRows, changedRows);
+		return isCompleted;
+	}
 
-			// Check for deleted entries
-			checkDeleted(originalRows, changedRows);
-		} catch(IOException e){
-			e.printStackTrace();
+	/**
+	 * Processes the rows from the start key on and passes the statements in batches to a writer
+	 * stage, which writes them to the output. If writing fails, the exception is thrown once the
+	 * writer stage ended.
+	 * @param originalRows
+	 * @param changedRows
+	 * @param fromKey
+	 * @return false if the processing was stopped
+	 * @throws IOException
+	 */
+	private boolean processPipelined(RowSource originalRows, RowSource changedRows, IndexKey fromKey) throws IOException {
+		StageQueue<Batch> batches = monitor.createQueue(QUEUE_WRITE, BATCH_QUEUE_CAPACITY);
+		Thread writerStage = new Thread(() -> writeBatches(batches), "diff-writer");
+		writerStage.start();
+
+		IndexKey stopKey;
+		try{
+			BatchSink sink = new BatchSink(batches, journal != null, this::createBuffer);
+			stopKey = processRange(originalRows, changedRows, fromKey, null, control, sink);
+			sink.flush(stopKey);
 		} finally{
-			closeWriter();
+			putBatch(batches, END_OF_BATCHES);
+			try {
+				writerStage.join();
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+
+		if(writeError != null){
+			throw writeError;
 		}
+
+		return stopKey == null;
 	}
 
 	/**
-	 * Determines new rows and prints a corresponding sql line to the output.
+	 * Processes the rows from the start key on and applies the changes to the database. The key
+	 * position of each commit is committed to the journal, so a resumed run continues after the
+	 * changes applied before. If the processing fails, the changes after the last commit are
+	 * rolled back.
 	 * @param originalRows
 	 * @param changedRows
+	 * @param fromKey
+	 * @return false if the processing was stopped
 	 * @throws IOException
 	 */
-	private void checkCreated(RowSource originalRows, RowSource changedRows)
-			throws IOException {
-		for(int i = 0; i < changedRows.count(); i += PART_SIZE){
-			for (Row cRow : changedRows.getPart(i, PART_SIZE)) {
-				if(!originalRows.containsRow(RowUtil.genIndexKey(cRow.getPrimaryKey()))){
-					openWriter().write(buildInsertQueryString(cRow));
-					openWriter().newLine();
+	private boolean processApplied(RowSource originalRows, RowSource changedRows, IndexKey fromKey) throws IOException {
+		Connection connection = null;
+		JdbcSink sink = null;
+		try{
+			connection = DriverManager.getConnection(jdbcUrl);
+			connection.setAutoCommit(false);
+			sink = new JdbcSink(connection, table);
+			sink.setBatchSize(jdbcBatchSize);
+			sink.setCommitInterval(jdbcCommitInterval);
+			sink.setCommitListener(position -> {
+				if(journal != null){
+					journal.commit(tableName, position, 0);
 				}
+			});
+
+			IndexKey stopKey = processRange(originalRows, changedRows, fromKey, null, control, sink);
+			sink.commit();
+			if(stopKey != null && journal != null){
+				journal.commit(tableName, stopKey, 0);
+			}
+			appliedCounts = new int[]{ sink.getInsertCount(), sink.getUpdateCount(), sink.getDeleteCount() };
+
+			return stopKey == null;
+		} catch(SQLException e){
+			throw new IOException(e);
+		} finally{
+			if(sink != null){
+				sink.close();
 			}
+			try{if(connection != null) connection.rollback();} catch(Exception e){}
+			try{if(connection != null) connection.close();} catch(Exception e){}
 		}
 	}
 
 	/**
-	 * Determines updated rows and prints a corresponding sql line to the output.
+	 * Puts the batch into the queue of the writer stage.
+	 * @param batches
+	 * @param batch
+	 * @throws IOException
+	 */
+	private static void putBatch(StageQueue<Batch> batches, Batch batch) throws IOException {
+		try {
+			batches.put(batch);
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Writes the statements of the batches taken from the queue until the end of the batches
+	 * is taken and commits the positions passed with them. If writing fails, the exception is
+	 * kept and nothing more is written or committed, the remaining batches are still taken, so
+	 * the producer is not blocked.
+	 * @param batches
+	 */
+	private void writeBatches(StageQueue<Batch> batches){
+		try{
+			Batch batch = batches.take();
+			while(batch != END_OF_BATCHES){
+				try {
+					if(writeError == null && batch.changes.getCount() > 0){
+						batch.changes.writeTo(openOutput());
+					}
+					if(writeError == null && batch.position != null){
+						commit(batch.position);
+					}
+				} catch(IOException e){
+					writeError = e;
+				}
+				batch = batches.take();
+			}
+		} catch(InterruptedException e){
+			writeError = new InterruptedIOException();
+		}
+	}
+
+	/**
+	 * Processes the key ranges between the bounds at the same time and writes the buffered
+	 * statements in order of the ranges. If the processing is stopped, the output ends with the
+	 * statements of the first incomplete range, so it still covers the changes up to a key position.
+	 * The end of each range written is committed. The ranges are processed by the shard executor,
+	 * which may be shared with other tables, so they are possibly started one after another. Once
+	 * the processing ends early, the remaining ranges are stopped at their next check or not started.
 	 * @param originalRows
 	 * @param changedRows
+	 * @param fromKey
+	 * @param bounds
+	 * @return false if the processing was stopped
 	 * @throws IOException
 	 */
-	private void checkUpdated(RowSource originalRows, RowSource changedRows)
-			throws IOException {
-		for(int i = 0; i < originalRows.count(); i += PART_SIZE){
-			Map<String, Row> oPartMap = originalRows.getPartMap(i, PART_SIZE);
-			Map<String, Row> cPartMap = changedRows.getRowsMap(oPartMap.keySet());
-			
-			for (Row oRow : oPartMap.values()) {
-				String key = RowUtil.genIndexKey(oRow.getPrimaryKey());
-				if(!cPartMap.containsKey(key)){
-					continue;
+	private boolean processShards(RowSource originalRows, RowSource changedRows, IndexKey fromKey, List<IndexKey> bounds) throws IOException {
+		ExecutorService executor = shardExecutor != null ? shardExecutor : Executors.newFixedThreadPool(bounds.size() + 1);
+		List<ShardSink> sinks = new ArrayList<>();
+		List<Future<IndexKey>> shards = new ArrayList<>();
+		// Stops the shards of this table together with the control state
+		ControlState shardControl = new ControlState(){
+			@Override
+			public boolean checkpoint() {
+				return super.checkpoint() && control.checkpoint();
+			}
+		};
+		try{
+			for(int i = 0; i <= bounds.size(); i++){
+				IndexKey startKey = i > 0 ? bounds.get(i - 1) : fromKey;
+				IndexKey endKey = i < bounds.size() ? bounds.get(i) : null;
+				ShardSink sink = new ShardSink(this::createBuffer, outputDir + "\\" + tableName + "-" + (i + 1) + ".tmp");
+				sinks.add(sink);
+				shards.add(executor.submit(() -> shardControl.isStopped() ? startKey
+					: processRange(originalRows, changedRows, startKey, endKey, shardControl, sink)));
+			}
+
+			for(int i = 0; i < shards.size(); i++){
+				IndexKey stopKey;
+				try {
+					stopKey = shards.get(i).get();
+				} catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				} catch(ExecutionException e){
+					if(e.getCause() instanceof UncheckedIOException){
+						throw ((UncheckedIOException) e.getCause()).getCause();
+					}
+					throw new IOException(e.getCause());
 				}
-	
-				Row cRow = cPartMap.get(key);
-				if(cRow != null && !oRow.equals(cRow)){
-					openWriter().write(buildUpdateQueryString(oRow, cRow));
-					openWriter().newLine();
+
+				if(sinks.get(i).hasChanges()){
+					sinks.get(i).writeTo(openOutput());
+				}
+				if(stopKey != null){
+					commit(stopKey);
+					return false;
 				}
+				if(i < bounds.size()){
+					commit(bounds.get(i));
+				}
+			}
+
+			return true;
+		} finally{
+			// Wait for the remaining shards, so no temporary file is written after being removed
+			shardControl.stop();
+			for (Future<IndexKey> shard : shards) {
+				try{shard.get();} catch(Exception e){}
+			}
+			for (ShardSink sink : sinks) {
+				sink.discard();
+			}
+			if(executor != shardExecutor){
+				executor.shutdown();
 			}
 		}
 	}
 
 	/**
-	 * Determines deleted rows and prints a corresponding sql line to the output.
+	 * Determines the changes of the rows whose keys lie within the specified range and passes them
+	 * to the sink in key order. The start key is inclusive, the end key exclusive. A {@code null}
+	 * value leaves the range open to that side.
 	 * @param originalRows
 	 * @param changedRows
+	 * @param fromKey
+	 * @param toKey
+	 * @param control checked between the rows
+	 * @param sink receives the changes and the key positions reached
+	 * @return the key of the first row not processed if the processing was stopped, otherwise {@code null}
 	 * @throws IOException
 	 */
-	private void checkDeleted(RowSource originalRows, RowSource changedRows)
-			throws IOException {
-		for(int i = 0; i < originalRows.count(); i += PART_SIZE){
-			for (Row oRow : originalRows.getPart(i, PART_SIZE)) {
-				if(!changedRows.containsRow(RowUtil.genIndexKey(oRow.getPrimaryKey()))){
-					openWriter().write(buildDeleteQueryString(oRow));
-					openWriter().newLine();
+	private static IndexKey processRange(RowSource originalRows, RowSource changedRows, IndexKey fromKey, IndexKey toKey,
+			ControlState control, ChangeSink sink) throws IOException {
+		boolean compareFingerprints = originalRows.hasFingerprints() && changedRows.hasFingerprints();
+		try(RowCursor oCursor = originalRows.openCursor(fromKey, toKey); RowCursor cCursor = changedRows.openCursor(fromKey, toKey)){
+			boolean hasOriginal = oCursor.next();
+			boolean hasChanged = cCursor.next();
+			int steps = 0;
+			while(hasOriginal || hasChanged){
+				if(++steps == CHECK_INTERVAL){
+					steps = 0;
+					IndexKey position = !hasOriginal ? cCursor.getKey() : !hasChanged ? oCursor.getKey()
+						: RowUtil.compareIndexKeys(oCursor.getKey(), cCursor.getKey()) <= 0 ? oCursor.getKey() : cCursor.getKey();
+					if(!control.checkpoint()){
+						return position;
+					}
+					sink.commit(position);
+				}
+
+				int comparison = !hasOriginal ? 1 : !hasChanged ? -1
+					: RowUtil.compareIndexKeys(oCursor.getKey(), cCursor.getKey());
+
+				if(comparison < 0){
+					// Key only in original rows
+					sink.delete(oCursor.getRow());
+					hasOriginal = oCursor.next();
+				} else if(comparison > 0){
+					// Key only in changed rows
+					sink.insert(cCursor.getRow());
+					hasChanged = cCursor.next();
+				} else {
+					// Rows with equal fingerprints are unchanged and need not be loaded
+					if(!compareFingerprints || oCursor.getFingerprint() != cCursor.getFingerprint()){
+						Row oRow = oCursor.getRow();
+						Row cRow = cCursor.getRow();
+						// Compare the raw data first, the values are only tokenized if it differs
+						if(!oRow.isRawEqual(cRow) && !oRow.equals(cRow)){
+							sink.update(oRow, cRow);
+						}
+					}
+					hasOriginal = oCursor.next();
+					hasChanged = cCursor.next();
 				}
 			}
 		}
+
+		return null;
 	}
 
 	/**
-	 * Builds a sql insert query string for the row.
-	 * @param row
+	 * Creates a buffer of changes in the format of the output.
 	 * @return
 	 */
-	private static String buildInsertQueryString(Row row){
-		String query = "INSERT INTO " + row.getTable().getName();
-		query += " (" + String.join(", ", row.getTable().getColumnNames())+ ")";
-		query += " VALUES (" + String.join(", ", row.getValue()) + ");";
-
-		return query;
+	private ChangeBuffer createBuffer(){
+		return format.createBuffer(tableId, table);
 	}
 
 	/**
-	 * Builds a sql update query string corresponding to the differing between
-	 * columns of the two specified rows.
-	 * @param originalRow
-	 * @param changedRow
+	 * Returns the keys which divide the key space from the start key on into shards of about equal
+	 * row count. The keys are taken from the larger source. An empty list is returned if the table
+	 * is not split.
+	 * @param originalRows
+	 * @param changedRows
+	 * @param fromKey
 	 * @return
 	 */
-	private static String buildUpdateQueryString(Row originalRow, Row changedRow){
-		String[] columnNames = changedRow.getTable().getColumnNames();
+	private List<IndexKey> buildShardBounds(RowSource originalRows, RowSource changedRows, IndexKey fromKey){
+		RowSource source = originalRows.count() >= changedRows.count() ? originalRows : changedRows;
+		int start = fromKey != null ? source.indexOf(fromKey) : 0;
+		int remaining = source.count() - start;
+		int shards = Math.min(shardCount, remaining / MIN_SHARD_SIZE);
+
+		List<IndexKey> bounds = new ArrayList<>();
+		for(int i = 1; i < shards; i++){
+			bounds.add(source.getKeyAt(start + (int) ((long) remaining * i / shards)));
+		}
 
-		String query = "UPDATE " + changedRow.getTable().getName() + " SET";
+		return bounds;
+	}
 
-		String updateList = "";
-		for(int i = 0; i < columnNames.length; i++){
-			if(!originalRow.getValue()[i].equals(changedRow.getValue()[i])){
-				updateList += (updateList.isEmpty() ? " " : ", ") + columnNames[i] + "=" + changedRow.getValue()[i];
+	/**
+	 * Opens the inner output stream if not already existent and returns the instance. A new
+	 * output file starts with the header of the format.
+	 * @return
+	 * @throws IOException
+	 */
+	private OutputStream openOutput() throws IOException {
+		if(stream == null){
+			output = new FileOutputStream(getOutputPath());
+			stream = createStream(output);
+			format.writeHeader(stream, tableId, table);
+		}
+		return stream;
+	}
 
+	/**
+	 * Opens the inner output stream to continue the existing output, which is cut to the specified
+	 * length before. Changes written after that length within a former run are dropped.
+	 * @param length
+	 * @return
+	 * @throws IOException if the existing output is shorter than the specified length
+	 */
+	private OutputStream openOutput(long length) throws IOException {
+		if(stream == null){
+			File file = new File(getOutputPath());
+			if(file.length() < length){
+				throw new IOException("Output " + file.getPath() + " is shorter than the committed length " + length);
+			}
+			output = new FileOutputStream(file, true);
+			output.getChannel().truncate(length);
+			stream = createStream(output);
+			if(length == 0){
+				format.writeHeader(stream, tableId, table);
 			}
 		}
-		query += updateList + " WHERE";
 
-		int[] pkIndices = changedRow.getTable().getPrimaryKeyIndices();
-		for(int i = 0; i < pkIndices.length; i++){
-			query += (i == 0 ? " " : " AND ") + columnNames[pkIndices[i]] + " = " + changedRow.getValue()[i];
-		}
-		query += ";";
+		return stream;
+	}
 
-		return  query;
+	private String getOutputPath(){
+		return outputDir + "\\" + tableName + format.getExtension() + (isCompressed ? ".gz" : "");
 	}
 
 	/**
-	 * Builds a sql delete query string for the row.
-	 * @param row
+	 * Creates the inner output stream writing to the output file. If the output is compressed,
+	 * the stream flushes whole gzip members, so the committed length ends at a member boundary.
+	 * @param output
 	 * @return
 	 */
-	private static String buildDeleteQueryString(Row row){
-		String[] columnNames = row.getTable().getColumnNames();
-
-		String query = "DELETE FROM " + row.getTable().getName() + " WHERE";
-
-		int[] pkIndices = row.getTable().getPrimaryKeyIndices();
-		for(int i = 0; i < pkIndices.length; i++){
-			query += (i == 0 ? " " : " AND ") + columnNames[pkIndices[i]] + " = " + row.getValue()[i];
+	private OutputStream createStream(FileOutputStream output){
+		if(isCompressed){
+			int threadCount = Runtime.getRuntime().availableProcessors();
+			return compressionExecutor != null ? new ParallelGzipOutputStream(output, compressionExecutor, threadCount * 2)
+				: new ParallelGzipOutputStream(output, threadCount);
 		}
-		query += ";";
 
-		return query;
+		return new BufferedOutputStream(output);
 	}
 
 	/**
-	 * Opens the inner writer if not already existent and returns the instance.
-	 * @return
+	 * Flushes the inner output stream and commits the key position to the journal together with
+	 * the length of the output. Nothing is flushed without a journal. A compressed output holding
+	 * less than a block since the last flush is not committed, the former position stays valid then.
+	 * @param position
 	 * @throws IOException
 	 */
-	private BufferedWriter openWriter() throws IOException {
-		if(writer == null){
-			writer = new BufferedWriter(new FileWriter(outputDir + "\\" + tableName + ".txt"));
+	private void commit(IndexKey position) throws IOException {
+		if(journal != null){
+			if(stream instanceof ParallelGzipOutputStream){
+				long unflushed = ((ParallelGzipOutputStream) stream).getUnflushedLength();
+				if(unflushed > 0 && unflushed < ParallelGzipOutputStream.BLOCK_SIZE){
+					return;
+				}
+			}
+
+			long length = 0;
+			if(stream != null){
+				stream.flush();
+				length = output.getChannel().size();
+			}
+			journal.commit(tableName, position, length);
 		}
-		return writer;
 	}
 
 	/**
-	 * Closes the inner writer instance if open and existent.
+	 * Closes the inner output stream if open and existent.
+	 * @throws IOException if the remaining output could not be written
 	 */
-	private void closeWriter(){
-		try{
-			if(writer != null){ 
-				writer.close();
-			}
-		} catch(Exception e){}
+	private void closeOutput() throws IOException {
+		if(stream != null){
+			OutputStream closed = stream;
+			stream = null;
+			closed.close();
+		}
 	}
 
-	private void 
-
+	/**
+	 * Resumes the processing if paused.
+	 */
 	@Override
 	public void start() {
-		
-
+		control.start();
 	}
 
+	/**
+	 * Stops the processing. The statements determined so far are written to the output.
+	 */
 	@Override
 	public void stop() {
-		
-
+		control.stop();
 	}
 
+	/**
+	 * Pauses the processing until it is resumed or stopped.
+	 */
 	@Override
 	public void pause() {
-		
+		control.pause();
+	}
+
+	/**
+	 * Represents changes passed to the writer stage, optionally together with the key
+	 * position reached after them.
+	 */
+	private static class Batch {
+
+		private ChangeBuffer changes;
+		private IndexKey position;
+
+		public Batch(ChangeBuffer changes, IndexKey position) {
+			this.changes = changes;
+			this.position = position;
+		}
 
 	}
 
-	private class DiffIterator {
+	/**
+	 * Sink which collects the changes of a shard. Once more than {@value #SPILL_SIZE} bytes are held,
+	 * the changes are moved to a temporary file, so the changes of shards waiting for the former ones
+	 * are not held in memory.
+	 */
+	private static class ShardSink implements ChangeSink {
+
+		private ChangeBuffer buffer;
+		private String spillPath;
+		private OutputStream spill;
+
+		public ShardSink(Supplier<ChangeBuffer> bufferFactory, String spillPath) {
+			this.buffer = bufferFactory.get();
+			this.spillPath = spillPath;
+		}
+
+		@Override
+		public void insert(Row row) throws IOException {
+			buffer.insert(row);
+			endChange();
+		}
+
+		@Override
+		public void update(Row originalRow, Row changedRow) throws IOException {
+			buffer.update(originalRow, changedRow);
+			endChange();
+		}
+
+		@Override
+		public void delete(Row row) throws IOException {
+			buffer.delete(row);
+			endChange();
+		}
 
-		private RowSource source1;
-		private RowSource source2;
-		private TriFunction<RowSource, RowSource, Integer> t;
-		
+		/**
+		 * Checks whether any changes were passed.
+		 * @return
+		 */
+		public boolean hasChanges() {
+			return spill != null || buffer.getCount() > 0;
+		}
+
+		/**
+		 * Writes the changes to the output in the order they were passed.
+		 * @param out
+		 * @throws IOException
+		 */
+		public void writeTo(OutputStream out) throws IOException {
+			if(spill != null){
+				spill.close();
+				spill = null;
+				Files.copy(new File(spillPath).toPath(), out);
+			}
+			if(buffer.getCount() > 0){
+				buffer.writeTo(out);
+				buffer.clear();
+			}
+		}
+
+		/**
+		 * Removes the temporary file if existent.
+		 */
+		public void discard() {
+			try{if(spill != null) spill.close();} catch(Exception e){}
+			spill = null;
+			new File(spillPath).delete();
+		}
+
+		private void endChange() throws IOException {
+			if(buffer.getSize() > SPILL_SIZE){
+				if(spill == null){
+					spill = new BufferedOutputStream(new FileOutputStream(spillPath));
+				}
+				buffer.writeTo(spill);
+				buffer.clear();
+			}
+		}
+
+	}
+
+	/**
+	 * Sink which collects the changes in batches and puts full batches into the queue
+	 * of the writer stage.
+	 */
+	private static class BatchSink implements ChangeSink {
+
+		private StageQueue<Batch> batches;
+		private Supplier<ChangeBuffer> bufferFactory;
+		private ChangeBuffer batch;
+		private boolean isCommitting;
+		private long lastCommit;
+
+		public BatchSink(StageQueue<Batch> batches, boolean isCommitting, Supplier<ChangeBuffer> bufferFactory) {
+			this.batches = batches;
+			this.bufferFactory = bufferFactory;
+			this.batch = bufferFactory.get();
+			this.isCommitting = isCommitting;
+			this.lastCommit = System.currentTimeMillis();
+		}
+
+		@Override
+		public void insert(Row row) throws IOException {
+			batch.insert(row);
+			endChange();
+		}
+
+		@Override
+		public void update(Row originalRow, Row changedRow) throws IOException {
+			batch.update(originalRow, changedRow);
+			endChange();
+		}
+
+		@Override
+		public void delete(Row row) throws IOException {
+			batch.delete(row);
+			endChange();
+		}
+
+		/**
+		 * Passes the position with the pending changes if the last position was passed
+		 * at least {@value #COMMIT_INTERVAL} ms before.
+		 */
+		@Override
+		public void commit(IndexKey position) throws IOException {
+			if(isCommitting && System.currentTimeMillis() - lastCommit >= COMMIT_INTERVAL){
+				flush(position);
+				lastCommit = System.currentTimeMillis();
+			}
+		}
+
+		/**
+		 * Puts the pending changes into the queue, together with the position if specified.
+		 * @param position
+		 * @throws IOException
+		 */
+		public void flush(IndexKey position) throws IOException {
+			if(batch.getCount() > 0 || position != null){
+				putBatch(batches, new Batch(batch, position));
+				batch = bufferFactory.get();
+			}
+		}
+
+		private void endChange() throws IOException {
+			if(batch.getCount() == BATCH_SIZE){
+				flush(null);
+			}
+		}
 
 	}
 
@@ -0,0 +1,426 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.function.Consumer;
+
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Sink which applies the changes of a table to a database through a jdbc connection. There is
+ * one prepared statement per operation, whose parameters are bound from the row values and which
+ * is executed in batches. Updates set all columns apart from the primary key columns. The pending
+ * batches are executed together, deletes first, so a value of a unique column can move from a
+ * deleted to an inserted row. The transaction is committed at the first key position passed after
+ * the commit interval is reached. The connection must not be in auto commit mode.
+ */
+public class JdbcSink implements ChangeSink, Closeable {
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+
+	private Connection connection;
+	private Table table;
+	private int[] pkIndices;
+	private int[] valueIndices;
+	private int[] sqlTypes;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+	private Consumer<IndexKey> commitListener;
+	private PreparedStatement insertStatement;
+	private PreparedStatement updateStatement;
+	private PreparedStatement deleteStatement;
+	private int pendingInserts;
+	private int pendingUpdates;
+	private int pendingDeletes;
+	private int uncommittedCount;
+	private int insertCount;
+	private int updateCount;
+	private int deleteCount;
+
+	/**
+	 * Creates a sink of changes of the table. The table of the changed rows is expected.
+	 * @param connection
+	 * @param table
+	 */
+	public JdbcSink(Connection connection, Table table) {
+		this.connection = connection;
+		this.table = table;
+		this.pkIndices = table.getPrimaryKeyIndices();
+
+		Column[] columns = table.getColumns();
+		this.sqlTypes = new int[columns.length];
+		this.valueIndices = new int[columns.length - pkIndices.length];
+		for(int i = 0, j = 0; i < columns.length; i++){
+			sqlTypes[i] = toSqlType(columns[i]);
+			if(!columns[i].isPrimaryKey()){
+				valueIndices[j++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of changes of an operation executed at once.
+	 * @return
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the number of changes of an operation executed at once. Defaults to {@value #DEFAULT_BATCH_SIZE}.
+	 * @param batchSize
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Returns the number of changes after which the transaction is committed.
+	 * @return
+	 */
+	public int getCommitInterval() {
+		return commitInterval;
+	}
+
+	/**
+	 * Sets the number of changes after which the transaction is committed at the next key
+	 * position passed. Defaults to {@value #DEFAULT_COMMIT_INTERVAL}.
+	 * @param commitInterval
+	 */
+	public void setCommitInterval(int commitInterval) {
+		this.commitInterval = commitInterval;
+	}
+
+	/**
+	 * Sets the listener which is passed the key position after each commit at a key position.
+	 * All changes of rows with lower keys are committed then.
+	 * @param commitListener
+	 */
+	public void setCommitListener(Consumer<IndexKey> commitListener) {
+		this.commitListener = commitListener;
+	}
+
+	/**
+	 * Returns the number of inserted rows.
+	 * @return
+	 */
+	public int getInsertCount() {
+		return insertCount;
+	}
+
+	/**
+	 * Returns the number of updated rows.
+	 * @return
+	 */
+	public int getUpdateCount() {
+		return updateCount;
+	}
+
+	/**
+	 * Returns the number of deleted rows.
+	 * @return
+	 */
+	public int getDeleteCount() {
+		return deleteCount;
+	}
+
+	@Override
+	public void insert(Row row) throws IOException {
+		try{
+			if(insertStatement == null){
+				insertStatement = connection.prepareStatement(buildInsert());
+			}
+			for(int i = 0; i < sqlTypes.length; i++){
+				bind(insertStatement, i + 1, row.getValue(i), sqlTypes[i]);
+			}
+			insertStatement.addBatch();
+			pendingInserts++;
+			insertCount++;
+		} catch(SQLException e){
+			throw new IOException(e);
+		}
+		endChange(pendingInserts);
+	}
+
+	@Override
+	public void update(Row originalRow, Row changedRow) throws IOException {
+		if(valueIndices.length == 0){
+			return;
+		}
+
+		try{
+			if(updateStatement == null){
+				updateStatement = connection.prepareStatement(buildUpdate());
+			}
+			for(int i = 0; i < valueIndices.length; i++){
+				bind(updateStatement, i + 1, changedRow.getValue(valueIndices[i]), sqlTypes[valueIndices[i]]);
+			}
+			bindKey(updateStatement, valueIndices.length + 1, changedRow);
+			updateStatement.addBatch();
+			pendingUpdates++;
+			updateCount++;
+		} catch(SQLException e){
+			throw new IOException(e);
+		}
+		endChange(pendingUpdates);
+	}
+
+	@Override
+	public void delete(Row row) throws IOException {
+		try{
+			if(deleteStatement == null){
+				deleteStatement = connection.prepareStatement(buildDelete());
+			}
+			bindKey(deleteStatement, 1, row);
+			deleteStatement.addBatch();
+			pendingDeletes++;
+			deleteCount++;
+		} catch(SQLException e){
+			throw new IOException(e);
+		}
+		endChange(pendingDeletes);
+	}
+
+	/**
+	 * Commits the transaction if the commit interval is reached and passes the position to
+	 * the listener.
+	 */
+	@Override
+	public void commit(IndexKey position) throws IOException {
+		if(uncommittedCount >= commitInterval){
+			commit();
+			if(commitListener != null){
+				commitListener.accept(position);
+			}
+		}
+	}
+
+	/**
+	 * Executes the pending batches and commits the transaction.
+	 * @throws IOException
+	 */
+	public void commit() throws IOException {
+		executeBatches();
+		try{
+			connection.commit();
+		} catch(SQLException e){
+			throw new IOException(e);
+		}
+		uncommittedCount = 0;
+	}
+
+	/**
+	 * Closes the statements. Changes not committed before are left to the connection.
+	 */
+	@Override
+	public void close() {
+		try{if(insertStatement != null) insertStatement.close();} catch(Exception e){}
+		try{if(updateStatement != null) updateStatement.close();} catch(Exception e){}
+		try{if(deleteStatement != null) deleteStatement.close();} catch(Exception e){}
+	}
+
+	/**
+	 * Counts the change and executes the pending batches if the batch of the operation is full.
+	 * @param pending pending changes of the operation
+	 * @throws IOException
+	 */
+	private void endChange(int pending) throws IOException {
+		uncommittedCount++;
+		if(pending >= batchSize){
+			executeBatches();
+		}
+	}
+
+	/**
+	 * Executes the pending batches in the order deletes, updates and inserts.
+	 * @throws IOException
+	 */
+	private void executeBatches() throws IOException {
+		try{
+			if(pendingDeletes > 0){
+				deleteStatement.executeBatch();
+				pendingDeletes = 0;
+			}
+			if(pendingUpdates > 0){
+				updateStatement.executeBatch();
+				pendingUpdates = 0;
+			}
+			if(pendingInserts > 0){
+				insertStatement.executeBatch();
+				pendingInserts = 0;
+			}
+		} catch(SQLException e){
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Binds the primary key values of the row starting at the specified parameter.
+	 * @param statement
+	 * @param parameter
+	 * @param row
+	 * @throws SQLException
+	 */
+	private void bindKey(PreparedStatement statement, int parameter, Row row) throws SQLException {
+		int[] rowPkIndices = row.getTable() == table ? pkIndices : row.getTable().getPrimaryKeyIndices();
+		for(int i = 0; i < rowPkIndices.length; i++){
+			bind(statement, parameter + i, row.getValue(rowPkIndices[i]), sqlTypes[pkIndices[i]]);
+		}
+	}
+
+	private String buildInsert() {
+		String[] columnNames = table.getColumnNames();
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(table.getName())
+			.append(" (").append(String.join(", ", columnNames)).append(") VALUES (");
+		for(int i = 0; i < columnNames.length; i++){
+			sql.append(i > 0 ? ", ?" : "?");
+		}
+
+		return sql.append(")").toString();
+	}
+
+	private String buildUpdate() {
+		String[] columnNames = table.getColumnNames();
+		StringBuilder sql = new StringBuilder("UPDATE ").append(table.getName()).append(" SET ");
+		for(int i = 0; i < valueIndices.length; i++){
+			sql.append(i > 0 ? ", " : "").append(columnNames[valueIndices[i]]).append(" = ?");
+		}
+		appendKeyConditions(sql);
+
+		return sql.toString();
+	}
+
+	private String buildDelete() {
+		StringBuilder sql = new StringBuilder("DELETE FROM ").append(table.getName());
+		appendKeyConditions(sql);
+
+		return sql.toString();
+	}
+
+	private void appendKeyConditions(StringBuilder sql) {
+		String[] columnNames = table.getColumnNames();
+		for(int i = 0; i < pkIndices.length; i++){
+			sql.append(i == 0 ? " WHERE " : " AND ").append(columnNames[pkIndices[i]]).append(" = ?");
+		}
+	}
+
+	/**
+	 * Binds the value of a sql literal to the parameter. Character literals and literals with a
+	 * type prefix like {@code DATE'..'} are bound as strings, binary literals as bytes and numbers
+	 * as decimals. Other values are bound as strings and converted by the database.
+	 * @param statement
+	 * @param parameter
+	 * @param literal
+	 * @param sqlType type used to bind {@code NULL}
+	 * @throws SQLException also if a binary or unicode literal is malformed
+	 */
+	private static void bind(PreparedStatement statement, int parameter, String literal, int sqlType) throws SQLException {
+		if(literal.equalsIgnoreCase("NULL")){
+			statement.setNull(parameter, sqlType);
+		} else if(literal.endsWith("'") && literal.indexOf('\'') < literal.length() - 1){
+			int quote = literal.indexOf('\'');
+			String prefix = literal.substring(0, quote).trim().toUpperCase();
+			String text = literal.substring(quote + 1, literal.length() - 1).replace("''", "'");
+			try{
+				if(prefix.equals("X")){
+					statement.setBytes(parameter, parseHex(text));
+				} else if(prefix.equals("U&")){
+					statement.setString(parameter, parseUnicode(text));
+				} else {
+					statement.setString(parameter, text);
+				}
+			} catch(IllegalArgumentException e){
+				throw new SQLException("Malformed literal: " + literal, e);
+			}
+		} else if(literal.equalsIgnoreCase("TRUE") || literal.equalsIgnoreCase("FALSE")){
+			statement.setBoolean(parameter, literal.equalsIgnoreCase("TRUE"));
+		} else {
+			try{
+				statement.setBigDecimal(parameter, new BigDecimal(literal));
+			} catch(NumberFormatException e){
+				statement.setString(parameter, literal);
+			}
+		}
+	}
+
+	/**
+	 * Parses the hexadecimal digits of a binary literal.
+	 * @param text
+	 * @return
+	 * @throws NumberFormatException if the text is no even number of hexadecimal digits
+	 */
+	private static byte[] parseHex(String text) {
+		if(text.length() % 2 != 0){
+			throw new NumberFormatException("Odd number of hexadecimal digits: " + text);
+		}
+
+		byte[] bytes = new byte[text.length() / 2];
+		for(int i = 0; i < bytes.length; i++){
+			bytes[i] = (byte) Integer.parseInt(text.substring(i * 2, i * 2 + 2), 16);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Resolves the escapes {@code \xxxx}, {@code \+xxxxxx} and {@code \\} of a unicode literal.
+	 * @param text
+	 * @return
+	 * @throws IllegalArgumentException if an escape is no valid code point
+	 */
+	private static String parseUnicode(String text) {
+		StringBuilder value = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); i++){
+			char c = text.charAt(i);
+			if(c == '\\' && i + 1 < text.length() && text.charAt(i + 1) == '\\'){
+				value.append('\\');
+				i++;
+			} else if(c == '\\' && i + 7 < text.length() && text.charAt(i + 1) == '+'){
+				value.appendCodePoint(Integer.parseInt(text.substring(i + 2, i + 8), 16));
+				i += 7;
+			} else if(c == '\\' && i + 4 < text.length()){
+				value.append((char) Integer.parseInt(text.substring(i + 1, i + 5), 16));
+				i += 4;
+			} else {
+				value.append(c);
+			}
+		}
+
+		return value.toString();
+	}
+
+	private static int toSqlType(Column column) {
+		if(column.getType() == null){
+			return Types.NULL;
+		}
+
+		switch(column.getType()){
+		case Numeric:
+			return Types.BIGINT;
+		case Decimal:
+			return Types.DECIMAL;
+		case Bit:
+			return Types.BIT;
+		case Character:
+			return Types.VARCHAR;
+		case Boolean:
+			return Types.BOOLEAN;
+		case Date:
+			return Types.TIMESTAMP;
+		case Binary:
+			return Types.VARBINARY;
+		default:
+			return Types.NULL;
+		}
+	}
+
+}
\ No newline at end of file
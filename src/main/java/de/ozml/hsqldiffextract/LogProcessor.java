@@ -0,0 +1,264 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import de.ozml.hsqldiffextract.common.ControlState;
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.common.ParallelGzipOutputStream;
+import de.ozml.hsqldiffextract.common.RowUtil;
+import de.ozml.hsqldiffextract.entity.RowChange;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * The class offers methods to write the net row changes read from a HSQLDB log file as sql
+ * statements or change log records. The output equals the one of the {@link DiffProcessor}, except
+ * for replaced rows, whose updates set all columns as the former values are unknown.
+ */
+public class LogProcessor {
+
+	private static final int CHECK_INTERVAL = 1024;
+	private static final int BATCH_SIZE = 256;
+
+	private String tableName;
+	private String outputDir;
+	private OutputFormat format = OutputFormat.Sql;
+	private int tableId;
+	private boolean isCompressed;
+	private ExecutorService compressionExecutor;
+	private ControlState control = new ControlState();
+	private int insertCount;
+	private int updateCount;
+	private int deleteCount;
+	private IOException failure;
+
+	public LogProcessor(String tableName, String outputDir){
+		this.tableName = tableName;
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * Return the name of the contained table.
+	 * @return
+	 */
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Return the output directory path.
+	 * @return
+	 */
+	public String getOutputDir() {
+		return outputDir;
+	}
+
+	/**
+	 * Returns the format of the output.
+	 * @return
+	 */
+	public OutputFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Sets the format of the output.
+	 * @param format
+	 */
+	public void setFormat(OutputFormat format) {
+		this.format = format;
+	}
+
+	/**
+	 * Returns the id of the table within the change log output.
+	 * @return
+	 */
+	public int getTableId() {
+		return tableId;
+	}
+
+	/**
+	 * Sets the id of the table within the change log output.
+	 * @param tableId
+	 */
+	public void setTableId(int tableId) {
+		this.tableId = tableId;
+	}
+
+	/**
+	 * Checks whether the output is compressed.
+	 * @return
+	 */
+	public boolean isCompressed() {
+		return isCompressed;
+	}
+
+	/**
+	 * Sets whether the output is written in gzip format like in {@link DiffProcessor#setCompressed(boolean)}.
+	 * @param isCompressed
+	 */
+	public void setCompressed(boolean isCompressed) {
+		this.isCompressed = isCompressed;
+	}
+
+	/**
+	 * Sets the executor the blocks of a compressed output are compressed by like in
+	 * {@link DiffProcessor#setCompressionExecutor(ExecutorService)}.
+	 * @param compressionExecutor
+	 */
+	public void setCompressionExecutor(ExecutorService compressionExecutor) {
+		this.compressionExecutor = compressionExecutor;
+	}
+
+	/**
+	 * Returns the control state of the processing.
+	 * @return
+	 */
+	public ControlState getControl() {
+		return control;
+	}
+
+	/**
+	 * Sets the control state of the processing.
+	 * @param control
+	 */
+	public void setControl(ControlState control) {
+		this.control = control;
+	}
+
+	/**
+	 * Returns the number of insert statements written.
+	 * @return
+	 */
+	public int getInsertCount() {
+		return insertCount;
+	}
+
+	/**
+	 * Returns the number of update statements written.
+	 * @return
+	 */
+	public int getUpdateCount() {
+		return updateCount;
+	}
+
+	/**
+	 * Returns the number of delete statements written.
+	 * @return
+	 */
+	public int getDeleteCount() {
+		return deleteCount;
+	}
+
+	/**
+	 * Returns the exception writing failed with, or {@code null} if it did not fail.
+	 * @return
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Writes the changes in order of the row keys. The changes are passed to the output in
+	 * batches of {@value #BATCH_SIZE}. The output file is only created if there is at least
+	 * one change.
+	 * @param changes changes mapped by the row keys
+	 * @return false if stopped or failed before all changes were written
+	 */
+	public boolean process(Map<IndexKey, RowChange> changes){
+		List<IndexKey> keys = RowUtil.sortIndexKeyList(changes.keySet());
+
+		boolean isCompleted = true;
+		Table table = null;
+		ChangeBuffer buffer = null;
+		OutputStream output = null;
+		try{
+			for(int i = 0; i < keys.size(); i++){
+				if(i % CHECK_INTERVAL == 0 && !control.checkpoint()){
+					isCompleted = false;
+					break;
+				}
+
+				RowChange change = changes.get(keys.get(i));
+				if(buffer == null){
+					table = change.getTable();
+					buffer = format.createBuffer(tableId, table);
+				}
+				addChange(buffer, change);
+				if(buffer.getCount() == BATCH_SIZE){
+					output = write(buffer, output, table);
+				}
+			}
+			if(buffer != null && buffer.getCount() > 0){
+				output = write(buffer, output, table);
+			}
+		} catch(IOException e){
+			failure = e;
+		} finally{
+			try{
+				if(output != null) output.close();
+			} catch(IOException e){
+				if(failure == null){
+					failure = e;
+				}
+			}
+		}
+
+		if(failure != null){
+			failure.printStackTrace();
+			return false;
+		}
+
+		return isCompleted;
+	}
+
+	/**
+	 * Writes the changes of the buffer to the output and clears the buffer. The output is
+	 * created if not yet existent.
+	 * @param buffer
+	 * @param output may be null
+	 * @param table
+	 * @return the output
+	 * @throws IOException
+	 */
+	private OutputStream write(ChangeBuffer buffer, OutputStream output, Table table) throws IOException {
+		if(output == null){
+			String path = outputDir + "\\" + tableName + format.getExtension();
+			if(isCompressed){
+				int threadCount = Runtime.getRuntime().availableProcessors();
+				output = compressionExecutor != null ? new ParallelGzipOutputStream(new FileOutputStream(path + ".gz"), compressionExecutor, threadCount * 2)
+					: new ParallelGzipOutputStream(new FileOutputStream(path + ".gz"), threadCount);
+			} else {
+				output = new BufferedOutputStream(new FileOutputStream(path));
+			}
+			format.writeHeader(output, tableId, table);
+		}
+		buffer.writeTo(output);
+		buffer.clear();
+
+		return output;
+	}
+
+	/**
+	 * Adds the change to the buffer and counts it.
+	 * @param buffer
+	 * @param change
+	 */
+	private void addChange(ChangeBuffer buffer, RowChange change){
+		if(change.isInsert()){
+			buffer.insert(change.getRow());
+			insertCount++;
+		} else if(change.isUpdate() && buffer.replace(change.getRow())){
+			updateCount++;
+		} else if(change.isDelete()){
+			buffer.delete(change.getTable(), change.getKeyValues());
+			deleteCount++;
+		}
+	}
+
+}
\ No newline at end of file
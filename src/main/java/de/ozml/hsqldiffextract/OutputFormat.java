@@ -0,0 +1,81 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Determines the format the changes of a table are written in.
+ */
+public enum OutputFormat {
+
+	/**
+	 * Sql statements, one per line.
+	 */
+	Sql(".txt"),
+
+	/**
+	 * Binary change log, see {@link de.ozml.hsqldiffextract.parser.ChangeLogReader}.
+	 */
+	ChangeLog(".chg");
+
+	private String extension;
+
+	private OutputFormat(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * Returns the extension of the output files.
+	 * @return
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * Returns the format of the specified name, ignoring the case, or {@link #Sql} if there
+	 * is no such format.
+	 * @param name
+	 * @return
+	 */
+	public static OutputFormat of(String name) {
+		for (OutputFormat format : values()) {
+			if(format.name().equalsIgnoreCase(name)){
+				return format;
+			}
+		}
+
+		return Sql;
+	}
+
+	/**
+	 * Creates a buffer of changes of the table in this format.
+	 * @param tableId id of the table within the output
+	 * @param table
+	 * @return
+	 */
+	public ChangeBuffer createBuffer(int tableId, Table table) {
+		switch(this){
+		case ChangeLog:
+			return new ChangeLogBuffer(tableId, table.getColumns().length);
+		default:
+			return new StatementBuffer();
+		}
+	}
+
+	/**
+	 * Writes the start of a new output file of the table.
+	 * @param out
+	 * @param tableId id of the table within the output
+	 * @param table
+	 * @throws IOException
+	 */
+	public void writeHeader(OutputStream out, int tableId, Table table) throws IOException {
+		if(this == ChangeLog){
+			ChangeLogBuffer.writeHeader(out, tableId, table);
+		}
+	}
+
+}
\ No newline at end of file
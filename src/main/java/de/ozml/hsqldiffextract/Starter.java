@@ -1,6 +1,7 @@
 package de.ozml.hsqldiffextract;
 
 import java.io.File;
+import java.util.List;
 
 import de.ozml.hsqldiffextract.arg.ArgumentBag;
 import de.ozml.hsqldiffextract.arg.ArgumentProcessor;
@@ -41,14 +42,16 @@ public class Starter {
 			}
 		}
 
-		// Changed file
+		// Changed files
 		System.out.println("\n" + Res.loadString("msg.readcfilepath"));
-		String changedFile = argProcessor.getChangedFile();
+		List<String> changedFiles = argProcessor.getChangedFiles();
 		if(!argProcessor.isInteractive()){
-			System.out.println(changedFile);
-			if(!new File(changedFile).exists()){
-				System.out.println(Res.loadString("msg.filenonexist"));
-				return;
+			for (String changedFile : changedFiles) {
+				System.out.println(changedFile);
+				if(!new File(changedFile).exists()){
+					System.out.println(Res.loadString("msg.filenonexist"));
+					return;
+				}
 			}
 		}
 
@@ -64,9 +67,20 @@ public class Starter {
 		}
 
 		// Configure workflow
-		Workflow workflow = new Workflow(originalFile, changedFile, outputDir, argProcessor.isLazyMode());
+		Workflow workflow = new Workflow(originalFile, changedFiles, outputDir, argProcessor.isLazyMode());
 		workflow.setInclusionFilter(argProcessor.getIncludeTables());
 		workflow.setExclusionFilter(argProcessor.getExcludeTables());
+		workflow.setOffHeapMode(argProcessor.isOffHeapMode());
+		workflow.setThreadCount(argProcessor.getThreadCount());
+		workflow.setShardCount(argProcessor.getShardCount());
+		workflow.setControlFile(argProcessor.getControlFile());
+		workflow.setResumeMode(argProcessor.isResumeMode());
+		workflow.setCacheMode(argProcessor.isCacheMode());
+		workflow.setGzipMode(argProcessor.isGzipMode());
+		workflow.setOutputFormat(OutputFormat.of(argProcessor.getOutputFormat()));
+		workflow.setJdbcUrl(argProcessor.getJdbcUrl());
+		workflow.setJdbcBatchSize(argProcessor.getJdbcBatchSize());
+		workflow.setJdbcCommitInterval(argProcessor.getJdbcCommitInterval());
 		workflow.start();
 	}
 
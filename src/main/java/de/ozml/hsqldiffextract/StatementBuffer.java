@@ -0,0 +1,138 @@
+package de.ozml.hsqldiffextract;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Buffer which holds the changes as sql statements, one per line. The statements are built from
+ * the templates of the tables of the rows.
+ */
+public class StatementBuffer extends ChangeBuffer {
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	private static final int CHUNK_SIZE = 8192;
+
+	private StringBuilder buffer = new StringBuilder();
+	private StatementTemplate oTemplate;
+	private StatementTemplate cTemplate;
+
+	/**
+	 * Returns the buffer holding the statements.
+	 * @return
+	 */
+	public StringBuilder getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Returns the number of characters held.
+	 * @return
+	 */
+	@Override
+	public int getSize() {
+		return buffer.length();
+	}
+
+	@Override
+	public void insert(Row row) {
+		cTemplate = getTemplate(cTemplate, row.getTable());
+		cTemplate.appendInsert(buffer, row);
+		endStatement();
+	}
+
+	@Override
+	public void update(Row originalRow, Row changedRow) {
+		cTemplate = getTemplate(cTemplate, changedRow.getTable());
+		cTemplate.appendUpdate(buffer, originalRow, changedRow);
+		endStatement();
+	}
+
+	@Override
+	public void delete(Row row) {
+		oTemplate = getTemplate(oTemplate, row.getTable());
+		oTemplate.appendDelete(buffer, row);
+		endStatement();
+	}
+
+	@Override
+	public boolean replace(Row row) {
+		cTemplate = getTemplate(cTemplate, row.getTable());
+		if(!cTemplate.appendReplace(buffer, row)){
+			return false;
+		}
+		endStatement();
+
+		return true;
+	}
+
+	@Override
+	public void delete(Table table, String[] keyValues) {
+		oTemplate = getTemplate(oTemplate, table);
+		oTemplate.appendDelete(buffer, keyValues);
+		endStatement();
+	}
+
+	/**
+	 * Writes the statements encoded with the default charset. The characters are copied in chunks
+	 * into a char array, so no string of the whole content is created.
+	 */
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+		ByteBuffer bytes = ByteBuffer.allocate((int) (CHUNK_SIZE * encoder.maxBytesPerChar()));
+
+		int position = 0;
+		while(position < buffer.length()){
+			int end = Math.min(buffer.length(), position + chars.remaining());
+			buffer.getChars(position, end, chars.array(), chars.position());
+			chars.position(chars.position() + end - position);
+			position = end;
+
+			chars.flip();
+			CoderResult result;
+			do {
+				result = encoder.encode(chars, bytes, position == buffer.length());
+				out.write(bytes.array(), 0, bytes.position());
+				bytes.clear();
+			} while(result.isOverflow());
+			chars.compact();
+		}
+
+		encoder.flush(bytes);
+		out.write(bytes.array(), 0, bytes.position());
+	}
+
+	@Override
+	public void clear() {
+		buffer.setLength(0);
+		count = 0;
+	}
+
+	private void endStatement() {
+		buffer.append(LINE_SEPARATOR);
+		count++;
+	}
+
+	/**
+	 * Returns the template if it belongs to the table, otherwise a new template for that table.
+	 * @param template may be null
+	 * @param table
+	 * @return
+	 */
+	private static StatementTemplate getTemplate(StatementTemplate template, Table table){
+		return template != null && template.getTable() == table ? template : new StatementTemplate(table);
+	}
+
+}
\ No newline at end of file
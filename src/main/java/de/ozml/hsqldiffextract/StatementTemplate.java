@@ -0,0 +1,154 @@
+package de.ozml.hsqldiffextract;
+
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Holds the fixed parts of the sql statements of a table, so a statement is built by appending
+ * the parts and the row values to a reused buffer. The column names and the primary key indices
+ * are determined once per table, and the values are appended without cutting them out of the row
+ * source, so no objects are allocated per statement.
+ */
+public class StatementTemplate {
+
+	private Table table;
+	private int[] pkIndices;
+	private boolean[] isPrimaryKey;
+	private String insertPrefix;
+	private String updatePrefix;
+	private String deletePrefix;
+	private String[] assignments;
+	private String[] conditions;
+
+	public StatementTemplate(Table table) {
+		this.table = table;
+		this.pkIndices = table.getPrimaryKeyIndices();
+		String[] columnNames = table.getColumnNames();
+
+		this.insertPrefix = "INSERT INTO " + table.getName() + " (" + String.join(", ", columnNames) + ") VALUES (";
+		this.updatePrefix = "UPDATE " + table.getName() + " SET";
+		this.deletePrefix = "DELETE FROM " + table.getName();
+
+		this.isPrimaryKey = new boolean[columnNames.length];
+		this.assignments = new String[columnNames.length];
+		for(int i = 0; i < columnNames.length; i++){
+			isPrimaryKey[i] = table.getColumns()[i].isPrimaryKey();
+			assignments[i] = columnNames[i] + "=";
+		}
+
+		this.conditions = new String[pkIndices.length];
+		for(int i = 0; i < pkIndices.length; i++){
+			conditions[i] = (i == 0 ? " WHERE " : " AND ") + columnNames[pkIndices[i]] + " = ";
+		}
+	}
+
+	/**
+	 * Returns the table of the template.
+	 * @return
+	 */
+	public Table getTable() {
+		return table;
+	}
+
+	/**
+	 * Appends a sql insert statement for the row.
+	 * @param buffer
+	 * @param row
+	 */
+	public void appendInsert(StringBuilder buffer, Row row) {
+		buffer.append(insertPrefix);
+		int count = row.getValueCount();
+		for(int i = 0; i < count; i++){
+			if(i > 0){
+				buffer.append(", ");
+			}
+			row.appendValue(i, buffer);
+		}
+		buffer.append(");");
+	}
+
+	/**
+	 * Appends a sql update statement setting the columns whose values differ between the two
+	 * rows to the values of the changed row.
+	 * @param buffer
+	 * @param originalRow
+	 * @param changedRow
+	 */
+	public void appendUpdate(StringBuilder buffer, Row originalRow, Row changedRow) {
+		buffer.append(updatePrefix);
+		boolean isFirst = true;
+		for(int i = 0; i < assignments.length; i++){
+			if(!originalRow.isValueEqual(i, changedRow)){
+				buffer.append(isFirst ? " " : ", ").append(assignments[i]);
+				changedRow.appendValue(i, buffer);
+				isFirst = false;
+			}
+		}
+		appendConditions(buffer, changedRow);
+	}
+
+	/**
+	 * Appends a sql update statement setting all columns apart from the primary key columns to
+	 * the values of the row. Used if the former values of the row are unknown. Nothing is appended
+	 * if the table has no other columns.
+	 * @param buffer
+	 * @param row
+	 * @return false if nothing was appended
+	 */
+	public boolean appendReplace(StringBuilder buffer, Row row) {
+		if(pkIndices.length == assignments.length){
+			return false;
+		}
+
+		buffer.append(updatePrefix);
+		boolean isFirst = true;
+		for(int i = 0; i < assignments.length; i++){
+			if(!isPrimaryKey[i]){
+				buffer.append(isFirst ? " " : ", ").append(assignments[i]);
+				row.appendValue(i, buffer);
+				isFirst = false;
+			}
+		}
+		appendConditions(buffer, row);
+
+		return true;
+	}
+
+	/**
+	 * Appends a sql delete statement for the row.
+	 * @param buffer
+	 * @param row
+	 */
+	public void appendDelete(StringBuilder buffer, Row row) {
+		buffer.append(deletePrefix);
+		appendConditions(buffer, row);
+	}
+
+	/**
+	 * Appends a sql delete statement for the row with the specified primary key values, given
+	 * in the order of the table definition.
+	 * @param buffer
+	 * @param keyValues
+	 */
+	public void appendDelete(StringBuilder buffer, String[] keyValues) {
+		buffer.append(deletePrefix);
+		for(int i = 0; i < conditions.length; i++){
+			buffer.append(conditions[i]).append(keyValues[i]);
+		}
+		buffer.append(';');
+	}
+
+	/**
+	 * Appends the primary key conditions of the row and ends the statement.
+	 * @param buffer
+	 * @param row
+	 */
+	private void appendConditions(StringBuilder buffer, Row row) {
+		for(int i = 0; i < conditions.length; i++){
+			buffer.append(conditions[i]);
+			row.appendValue(pkIndices[i], buffer);
+		}
+		buffer.append(';');
+	}
+
+}
\ No newline at end of file
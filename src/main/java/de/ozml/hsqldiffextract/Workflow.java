@@ -1,14 +1,41 @@
 package de.ozml.hsqldiffextract;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import de.ozml.hsqldiffextract.common.ArenaRowSource;
+import de.ozml.hsqldiffextract.common.ControlState;
+import de.ozml.hsqldiffextract.common.DataFile;
 import de.ozml.hsqldiffextract.common.EagerRowSource;
+import de.ozml.hsqldiffextract.common.IndexCache;
+import de.ozml.hsqldiffextract.common.IndexKey;
 import de.ozml.hsqldiffextract.common.LazyRowRource;
+import de.ozml.hsqldiffextract.common.PipelineMonitor;
+import de.ozml.hsqldiffextract.common.RowArena;
+import de.ozml.hsqldiffextract.common.RowIndex;
 import de.ozml.hsqldiffextract.common.RowSource;
+import de.ozml.hsqldiffextract.common.RowStore;
+import de.ozml.hsqldiffextract.common.RunJournal;
+import de.ozml.hsqldiffextract.entity.RowChange;
 import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.parser.LogParser;
+import de.ozml.hsqldiffextract.parser.ParseMode;
 import de.ozml.hsqldiffextract.parser.RowParser;
 import de.ozml.hsqldiffextract.parser.TableParser;
 import de.ozml.hsqldiffextract.res.Res;
@@ -19,21 +46,151 @@ import de.ozml.hsqldiffextract.res.Res;
 public class Workflow {
 
 	private static final String TABLE_OUTPUT_FILE = "00-ReadTables.txt";
+	private static final String JOURNAL_FILE = "00-Journal.txt";
+	private static final String LOG_EXTENSION = ".log";
 
 	private String originalFile;
-	private String changedFile;
+	private List<String> changedFiles;
 	private String outputDir;
 	private boolean isLazyMode;
+	private boolean isOffHeapMode;
+	private boolean isResumeMode;
+	private boolean isCacheMode;
+	private boolean isGzipMode;
+	private OutputFormat outputFormat = OutputFormat.Sql;
+	private String jdbcUrl;
+	private int jdbcBatchSize = JdbcSink.DEFAULT_BATCH_SIZE;
+	private int jdbcCommitInterval = JdbcSink.DEFAULT_COMMIT_INTERVAL;
+	private int threadCount = 1;
+	private int shardCount = 1;
+	private String controlFile;
+	private ControlState control = new ControlState();
 	private List<String> inclusionFilter;
 	private List<String> exclusionFilter;
+	private ExecutorService shardExecutor;
+	private ExecutorService compressionExecutor;
 
 	public Workflow(String originalFile, String changedFile, String outputDir, boolean isLazyMode) {
+		this(originalFile, Collections.singletonList(changedFile), outputDir, isLazyMode);
+	}
+
+	/**
+	 * Creates a workflow which determines the changes from the original file to each of the
+	 * changed files. The original file is read once and shared by all changed files. If several
+	 * changed files are given, the output of each is written to a subdirectory named after it.
+	 * @param originalFile
+	 * @param changedFiles
+	 * @param outputDir
+	 * @param isLazyMode
+	 */
+	public Workflow(String originalFile, List<String> changedFiles, String outputDir, boolean isLazyMode) {
 		this.originalFile = originalFile;
-		this.changedFile = changedFile;
+		this.changedFiles = changedFiles;
 		this.outputDir = outputDir;
 		this.isLazyMode = isLazyMode;
 	}
 
+	public boolean isOffHeapMode() {
+		return isOffHeapMode;
+	}
+
+	public void setOffHeapMode(boolean isOffHeapMode) {
+		this.isOffHeapMode = isOffHeapMode;
+	}
+
+	public boolean isResumeMode() {
+		return isResumeMode;
+	}
+
+	public void setResumeMode(boolean isResumeMode) {
+		this.isResumeMode = isResumeMode;
+	}
+
+	public boolean isCacheMode() {
+		return isCacheMode;
+	}
+
+	public void setCacheMode(boolean isCacheMode) {
+		this.isCacheMode = isCacheMode;
+	}
+
+	public boolean isGzipMode() {
+		return isGzipMode;
+	}
+
+	public void setGzipMode(boolean isGzipMode) {
+		this.isGzipMode = isGzipMode;
+	}
+
+	public OutputFormat getOutputFormat() {
+		return outputFormat;
+	}
+
+	public void setOutputFormat(OutputFormat outputFormat) {
+		this.outputFormat = outputFormat;
+	}
+
+	public String getJdbcUrl() {
+		return jdbcUrl;
+	}
+
+	/**
+	 * Sets the url of the database the changes are applied to instead of writing them to
+	 * output files.
+	 * @param jdbcUrl
+	 */
+	public void setJdbcUrl(String jdbcUrl) {
+		this.jdbcUrl = jdbcUrl;
+	}
+
+	public int getJdbcBatchSize() {
+		return jdbcBatchSize;
+	}
+
+	public void setJdbcBatchSize(int jdbcBatchSize) {
+		this.jdbcBatchSize = jdbcBatchSize;
+	}
+
+	public int getJdbcCommitInterval() {
+		return jdbcCommitInterval;
+	}
+
+	public void setJdbcCommitInterval(int jdbcCommitInterval) {
+		this.jdbcCommitInterval = jdbcCommitInterval;
+	}
+
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	public void setShardCount(int shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	public String getControlFile() {
+		return controlFile;
+	}
+
+	public void setControlFile(String controlFile) {
+		this.controlFile = controlFile;
+	}
+
+	/**
+	 * Returns the control state, which pauses, resumes or stops the determination of changes.
+	 * @return
+	 */
+	public ControlState getControl() {
+		return control;
+	}
+
 	public List<String> getInclusionFilter() {
 		return inclusionFilter;
 	}
@@ -56,55 +213,479 @@ public class Workflow {
 
 		// Read table definitions
 		System.out.println("\n" + Res.loadString("msg.collecttables"));
-		System.out.println(String.format(Res.loadString("msg.format.defswriteto"), outputDir + "\\" + TABLE_OUTPUT_FILE));
 
 		System.out.println("\n" + String.format(Res.loadString("msg.format.collecttablesfrom"), Res.loadString("ofile")));
-		List<Table> oTables = TableParser.readTablesFromFile(originalFile);
+		IndexCache oCache = isCacheMode ? loadCache(originalFile) : null;
+		List<Table> oTables = readTables(originalFile, oCache);
 		System.out.println(String.format(Res.loadString("msg.format.tablesread"), "" + oTables.size()));
-		
-		System.out.println("\n" + String.format(Res.loadString("msg.format.collecttablesfrom"), Res.loadString("cfile")));
-		List<Table> cTables = TableParser.readTablesFromFile(changedFile);
-		System.out.println(String.format(Res.loadString("msg.format.tablesread"), "" + cTables.size()));
+
+		List<Candidate> candidates = new ArrayList<>();
+		List<String> outputDirs = buildOutputDirs();
+		for(int i = 0; i < changedFiles.size(); i++){
+			Candidate candidate = new Candidate(changedFiles.get(i), outputDirs.get(i));
+			System.out.println("\n" + String.format(Res.loadString("msg.format.collecttablesfrom"), getLabel(candidate)));
+			if(candidate.isLog){
+				System.out.println(Res.loadString("msg.logtables"));
+				candidate.tables = new ArrayList<>(oTables);
+			} else {
+				candidate.cache = isCacheMode ? loadCache(candidate.file) : null;
+				candidate.tables = readTables(candidate.file, candidate.cache);
+			}
+			System.out.println(String.format(Res.loadString("msg.format.tablesread"), "" + candidate.tables.size()));
+			candidates.add(candidate);
+		}
 		
 		// Apply filters
 		if(inclusionFilter != null || (inclusionFilter != null && exclusionFilter != null)){
 			System.out.println("\n" + Res.loadString("msg.applyinfilter"));
 			applyInclusionFilter(oTables);
-			applyInclusionFilter(cTables);
+			for (Candidate candidate : candidates) {
+				applyInclusionFilter(candidate.tables);
+			}
 		} else if(exclusionFilter != null) {
 			System.out.println("\n" + Res.loadString("msg.applyexfilter"));
 			applyExclusionFilter(oTables);
-			applyExclusionFilter(cTables);
+			for (Candidate candidate : candidates) {
+				applyExclusionFilter(candidate.tables);
+			}
 		}
-		
-		printTables("*\n* " + Res.loadString("msg.originaltables") + ":\n*", oTables, false);
-		printTables("*\n* " + Res.loadString("msg.changedtables") + ":\n*", cTables, true);
-
-		// Process changes
-		System.out.println("\n" + Res.loadString("msg.determinchanges"));
-		for (Table oTable : oTables) {
-			for (Table cTable : cTables) {
-				if(oTable.getName().equals(cTable.getName())){
-					System.out.println("\n" + String.format(Res.loadString("msg.format.processtable"), oTable.getName()));
-
-					// Read rows
-					RowSource oTableSource = buildRowSource(oTable, originalFile);
-					RowSource cTableSource = buildRowSource(cTable, changedFile);
-					System.out.println(String.format(Res.loadString("msg.format.readrowsresult"), "" + oTableSource.count(), "" + cTableSource.count()));
-					
-					if(oTableSource.count() > 0 && cTableSource.count() > 0){
-						DiffProcessor diffProcessor = new DiffProcessor(oTable.getName(), outputDir);
-						diffProcessor.process(oTableSource, cTableSource);
-						System.out.println(Res.loadString("msg.done"));
-					} else {
-						System.out.println(Res.loadString("msg.skipped"));
+
+		// Determine tables to compare
+		List<Table> oMatched = new ArrayList<>();
+		for (Candidate candidate : candidates) {
+			new File(candidate.outputDir).mkdirs();
+			System.out.println("\n" + String.format(Res.loadString("msg.format.defswriteto"), candidate.outputDir + "\\" + TABLE_OUTPUT_FILE));
+			printTables(candidate.outputDir, "*\n* " + Res.loadString("msg.originaltables") + ":\n*", oTables, false);
+			printTables(candidate.outputDir, "*\n* " + Res.loadString("msg.changedtables") + ":\n*", candidate.tables, true);
+
+			for (Table oTable : oTables) {
+				for (Table cTable : candidate.tables) {
+					if(oTable.getName().equals(cTable.getName())){
+						candidate.oMatched.add(oTable);
+						candidate.cMatched.add(cTable);
+						if(!candidate.isLog && !oMatched.contains(oTable)){
+							oMatched.add(oTable);
+						}
+					}
+				}
+			}
+		}
+
+		// Open the journals, a run is only resumed with the same input files into the same output
+		for (Candidate candidate : candidates) {
+			candidate.journal = new RunJournal(candidate.outputDir + "\\" + JOURNAL_FILE);
+			List<String> outputSettings = Arrays.asList(new File(candidate.outputDir).getAbsolutePath(), outputFormat.name(),
+				isGzipMode ? "gzip" : "plain", jdbcUrl != null ? jdbcUrl : "file");
+			if(!candidate.journal.open(isResumeMode, Arrays.asList(originalFile, candidate.file), outputSettings)){
+				System.out.println("\n" + String.format(Res.loadString("msg.format.resumemismatch"), candidate.outputDir + "\\" + JOURNAL_FILE));
+				for (Candidate opened : candidates) {
+					if(opened.journal != null){
+						opened.journal.close();
 					}
 				}
+				System.out.println("\n" + Res.loadString("msg.workflowaborted"));
+				return;
+			}
+		}
+
+		DataFile oDataFile = new DataFile(originalFile);
+		ControlListener listener = new ControlListener(control, controlFile);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		// The shards and the compressed outputs of all tables share one executor each, so the thread
+		// count does not multiply with the tables processed at the same time
+		shardExecutor = shardCount > 1 ? Executors.newFixedThreadPool(shardCount) : null;
+		compressionExecutor = isGzipMode ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) : null;
+		boolean isAborted = false;
+		try{
+			// Read rows, the original rows are not needed if all changed files are logs
+			Map<String, RowSource> oSources = new HashMap<>();
+			if(!oMatched.isEmpty()){
+				System.out.println("\n" + String.format(Res.loadString("msg.format.readrowsfrom"), Res.loadString("ofile")));
+				PipelineMonitor oMonitor = new PipelineMonitor();
+				oSources = buildRowSources(oMatched, oDataFile, oMonitor, oCache);
+				System.out.print(formatStatistics(oMonitor));
+			}
+			saveCache(oCache);
+
+			// Process changes, the rows of the next changed file are read while the tables of
+			// the former ones are processed, so at most one more candidate than threads is held
+			System.out.println("\n" + Res.loadString("msg.determinchanges"));
+			listener.open();
+			int finished = 0;
+			for(int i = 0; i < candidates.size(); i++){
+				Candidate candidate = candidates.get(i);
+				System.out.println("\n" + String.format(Res.loadString("msg.format.readrowsfrom"), getLabel(candidate)));
+				if(candidate.isLog){
+					candidate.changes = LogParser.readChangesFromLog(candidate.cMatched, candidate.file);
+				} else {
+					candidate.dataFile = new DataFile(candidate.file);
+					PipelineMonitor cMonitor = new PipelineMonitor();
+					candidate.sources = buildRowSources(candidate.cMatched, candidate.dataFile, cMonitor, candidate.cache);
+					System.out.print(formatStatistics(cMonitor));
+					saveCache(candidate.cache);
+				}
+
+				submitTables(executor, candidate, oSources);
+
+				while(finished <= i - threadCount || (i == candidates.size() - 1 && finished < candidates.size())){
+					finishTables(candidates.get(finished++));
+				}
+			}
+		} catch(UncheckedIOException e){
+			// Rows which were not read would be taken as changes, so nothing is processed
+			e.printStackTrace();
+			System.out.println("\n" + String.format(Res.loadString("msg.format.readfailed"), e.getCause().getMessage()));
+			isAborted = true;
+			stopTables(candidates);
+		} catch(Throwable e){
+			// Resources are only closed once no table uses them any more
+			e.printStackTrace();
+			System.out.println("\n" + String.format(Res.loadString("msg.format.workflowfailed"), e));
+			isAborted = true;
+			stopTables(candidates);
+		} finally{
+			executor.shutdown();
+			if(shardExecutor != null){
+				shardExecutor.shutdown();
+			}
+			if(compressionExecutor != null){
+				compressionExecutor.shutdown();
+			}
+			listener.close();
+			try{oDataFile.close();} catch(Exception e){}
+			for (Candidate candidate : candidates) {
+				if(candidate.journal != null){
+					candidate.journal.close();
+				}
+				try{if(candidate.dataFile != null) candidate.dataFile.close();} catch(Exception e){}
 			}
 		}
 
 		// End
-		System.out.println("\n" + Res.loadString("msg.workflowcompleted"));
+		System.out.println("\n" + Res.loadString(isAborted ? "msg.workflowaborted" : control.isStopped() ? "msg.workflowstopped" : "msg.workflowcompleted"));
+	}
+
+	/**
+	 * Returns the output directories of the changed files in their order. If a single changed file
+	 * is processed, this is the output directory itself, otherwise a subdirectory named after the
+	 * changed file without its extension. Files resulting in equal names, compared ignoring case,
+	 * are told apart by their position, which is appended until the name is unique.
+	 * @return
+	 */
+	private List<String> buildOutputDirs(){
+		List<String> dirs = new ArrayList<>();
+		if(changedFiles.size() == 1){
+			dirs.add(outputDir);
+			return dirs;
+		}
+
+		List<String> names = new ArrayList<>();
+		Map<String, Integer> nameCounts = new HashMap<>();
+		for (String file : changedFiles) {
+			String name = new File(file).getName();
+			if(name.lastIndexOf('.') > 0){
+				name = name.substring(0, name.lastIndexOf('.'));
+			}
+			names.add(name);
+			nameCounts.merge(name.toLowerCase(), 1, Integer::sum);
+		}
+
+		// Unique names are kept, so the appended positions must not result in one of them
+		Set<String> usedNames = new HashSet<>();
+		for (String name : names) {
+			if(nameCounts.get(name.toLowerCase()) == 1){
+				usedNames.add(name.toLowerCase());
+			}
+		}
+
+		for(int i = 0; i < names.size(); i++){
+			String name = names.get(i);
+			if(nameCounts.get(name.toLowerCase()) > 1){
+				do{
+					name += "-" + (i + 1);
+				} while(!usedNames.add(name.toLowerCase()));
+			}
+			dirs.add(outputDir + "\\" + name);
+		}
+
+		return dirs;
+	}
+
+	/**
+	 * Returns the console name of the changed file.
+	 * @param candidate
+	 * @return
+	 */
+	private String getLabel(Candidate candidate){
+		return changedFiles.size() == 1 ? Res.loadString("cfile") : Res.loadString("cfile") + " " + candidate.file;
+	}
+
+	/**
+	 * Submits the changes of the tables of the candidate to the executor. The tables are started
+	 * in order of descending row count, so the largest tables do not delay the end of the run.
+	 * The original row sources are only read, so they are shared by all candidates. The changes
+	 * of a log are written table by table without the original rows.
+	 * @param executor
+	 * @param candidate
+	 * @param oSources
+	 */
+	private void submitTables(ExecutorService executor, Candidate candidate, Map<String, RowSource> oSources){
+		if(candidate.isLog){
+			for (Table table : candidate.oMatched) {
+				String name = table.getName();
+				candidate.results.put(name, executor.submit(() -> processLogTable(candidate, name, candidate.changes.get(name))));
+			}
+			return;
+		}
+
+		Map<String, RowSource> cSources = candidate.sources;
+		List<Table> schedule = new ArrayList<>(candidate.oMatched);
+		schedule.sort(Comparator.comparingLong((Table table) ->
+			(long) oSources.get(table.getName()).count() + cSources.get(table.getName()).count()).reversed());
+
+		for (Table table : schedule) {
+			String name = table.getName();
+			candidate.results.put(name, executor.submit(() -> processTable(candidate, name, oSources.get(name), cSources.get(name))));
+		}
+	}
+
+	/**
+	 * Stops the processing and waits for the tables of all candidates still being processed, which
+	 * end at a key position.
+	 * @param candidates
+	 */
+	private void stopTables(List<Candidate> candidates){
+		control.stop();
+		for (Candidate candidate : candidates) {
+			if(!candidate.results.isEmpty()){
+				finishTables(candidate);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the tables of the candidate and prints the buffered console output of each
+	 * table in table order. The rows of the candidate are released afterwards.
+	 * @param candidate
+	 */
+	private void finishTables(Candidate candidate){
+		if(changedFiles.size() > 1){
+			System.out.println("\n" + String.format(Res.loadString("msg.format.changeswriteto"), candidate.file, candidate.outputDir));
+		}
+
+		for (Table table : candidate.oMatched) {
+			Future<String> result = candidate.results.get(table.getName());
+			if(result == null){
+				continue;
+			}
+			try {
+				System.out.print(result.get());
+			} catch(InterruptedException | ExecutionException e){
+				e.printStackTrace();
+			}
+		}
+
+		candidate.sources = null;
+		candidate.changes = null;
+		candidate.results.clear();
+		candidate.journal.close();
+		try{if(candidate.dataFile != null) candidate.dataFile.close();} catch(Exception e){}
+	}
+
+	/**
+	 * Processes the changes of a single table of the candidate and returns the console output.
+	 * The table is skipped if the control state is stopped before it is started or if it was
+	 * completed within a resumed run.
+	 * @param candidate
+	 * @param tableName
+	 * @param oTableSource
+	 * @param cTableSource
+	 * @return
+	 */
+	private String processTable(Candidate candidate, String tableName, RowSource oTableSource, RowSource cTableSource){
+		RunJournal journal = candidate.journal;
+		StringBuilder output = new StringBuilder();
+		output.append("\n" + String.format(Res.loadString("msg.format.processtable"), tableName) + "\n");
+		output.append(String.format(Res.loadString("msg.format.readrowsresult"), "" + oTableSource.count(), "" + cTableSource.count()) + "\n");
+
+		if(journal.isCompleted(tableName)){
+			output.append(Res.loadString("msg.completedbefore") + "\n");
+		} else if(!control.checkpoint()){
+			output.append(Res.loadString("msg.stopped") + "\n");
+		} else if(oTableSource.count() > 0 && cTableSource.count() > 0){
+			if(journal.getPosition(tableName) != null){
+				output.append(String.format(Res.loadString("msg.format.resumeat"), journal.getPosition(tableName).getV1()) + "\n");
+			}
+			DiffProcessor diffProcessor = new DiffProcessor(tableName, candidate.outputDir);
+			diffProcessor.setShardCount(shardCount);
+			diffProcessor.setShardExecutor(shardExecutor);
+			diffProcessor.setFormat(outputFormat);
+			diffProcessor.setCompressed(isGzipMode);
+			diffProcessor.setCompressionExecutor(compressionExecutor);
+			diffProcessor.setTable(getMatchedTable(candidate, tableName));
+			diffProcessor.setTableId(getTableId(candidate, tableName));
+			diffProcessor.setJdbcUrl(jdbcUrl);
+			diffProcessor.setJdbcBatchSize(jdbcBatchSize);
+			diffProcessor.setJdbcCommitInterval(jdbcCommitInterval);
+			diffProcessor.setControl(control);
+			diffProcessor.setJournal(journal);
+			boolean isCompleted = diffProcessor.process(oTableSource, cTableSource);
+			output.append(formatStatistics(diffProcessor.getMonitor()));
+			int[] appliedCounts = diffProcessor.getAppliedCounts();
+			if(appliedCounts != null){
+				output.append(String.format(Res.loadString("msg.format.appliedchangesresult"), "" + appliedCounts[0],
+					"" + appliedCounts[1], "" + appliedCounts[2]) + "\n");
+			}
+			output.append(formatResult(isCompleted, diffProcessor.getFailure()) + "\n");
+		} else {
+			output.append(Res.loadString("msg.skipped") + "\n");
+		}
+
+		return output.toString();
+	}
+
+	/**
+	 * Returns the console result of a table.
+	 * @param isCompleted
+	 * @param failure exception the processing failed with, may be null
+	 * @return
+	 */
+	private String formatResult(boolean isCompleted, IOException failure){
+		if(failure != null){
+			return String.format(Res.loadString("msg.format.failed"), failure.getMessage());
+		}
+
+		return Res.loadString(isCompleted ? "msg.done" : "msg.stopped");
+	}
+
+	/**
+	 * Writes the logged changes of a single table of the candidate and returns the console output.
+	 * The table is skipped like in {@link #processTable(Candidate, String, RowSource, RowSource)}.
+	 * @param candidate
+	 * @param tableName
+	 * @param changes
+	 * @return
+	 */
+	private String processLogTable(Candidate candidate, String tableName, Map<IndexKey, RowChange> changes){
+		RunJournal journal = candidate.journal;
+		StringBuilder output = new StringBuilder();
+		output.append("\n" + String.format(Res.loadString("msg.format.processtable"), tableName) + "\n");
+
+		if(journal.isCompleted(tableName)){
+			output.append(Res.loadString("msg.completedbefore") + "\n");
+		} else if(!control.checkpoint()){
+			output.append(Res.loadString("msg.stopped") + "\n");
+		} else if(!changes.isEmpty()){
+			LogProcessor logProcessor = new LogProcessor(tableName, candidate.outputDir);
+			logProcessor.setControl(control);
+			logProcessor.setFormat(outputFormat);
+			logProcessor.setCompressed(isGzipMode);
+			logProcessor.setCompressionExecutor(compressionExecutor);
+			logProcessor.setTableId(getTableId(candidate, tableName));
+			boolean isCompleted = logProcessor.process(changes);
+			if(isCompleted){
+				journal.complete(tableName);
+			}
+			output.append(String.format(Res.loadString("msg.format.logchangesresult"), "" + logProcessor.getInsertCount(),
+				"" + logProcessor.getUpdateCount(), "" + logProcessor.getDeleteCount()) + "\n");
+			output.append(formatResult(isCompleted, logProcessor.getFailure()) + "\n");
+		} else {
+			output.append(Res.loadString("msg.skipped") + "\n");
+		}
+
+		return output.toString();
+	}
+
+	/**
+	 * Returns the table of the changed file matched with the table of the specified name.
+	 * @param candidate
+	 * @param tableName
+	 * @return
+	 */
+	private Table getMatchedTable(Candidate candidate, String tableName){
+		return candidate.cMatched.get(getTableId(candidate, tableName));
+	}
+
+	/**
+	 * Returns the id of the table within the change log output, which is its index within the
+	 * matched tables of the candidate.
+	 * @param candidate
+	 * @param tableName
+	 * @return
+	 */
+	private int getTableId(Candidate candidate, String tableName){
+		for(int i = 0; i < candidate.oMatched.size(); i++){
+			if(candidate.oMatched.get(i).getName().equals(tableName)){
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the occupancy of the pipeline queues as console output, one line per queue.
+	 * @param monitor
+	 * @return
+	 */
+	private String formatStatistics(PipelineMonitor monitor){
+		StringBuilder output = new StringBuilder();
+		for (PipelineMonitor.Statistics statistics : monitor.getStatistics()) {
+			output.append(String.format(Res.loadString("msg.format.queuestatistics"), statistics.getName(),
+				"" + statistics.getAverageOccupancy(), "" + statistics.getFullCount(), "" + statistics.getEmptyCount()) + "\n");
+		}
+
+		return output.toString();
+	}
+
+	/**
+	 * Returns the index cache of the data file, loaded if it is up to date.
+	 * @param path
+	 * @return
+	 */
+	private IndexCache loadCache(String path){
+		IndexCache cache = new IndexCache(path);
+		if(cache.load()){
+			System.out.println(String.format(Res.loadString("msg.format.cacheloaded"), cache.getCachePath()));
+		} else if(cache.exists()){
+			System.out.println(String.format(Res.loadString("msg.format.cachestale"), cache.getCachePath()));
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Writes the index cache if its content was changed.
+	 * @param cache
+	 */
+	private void saveCache(IndexCache cache){
+		if(cache != null && cache.isModified()){
+			try {
+				cache.save();
+				System.out.println(String.format(Res.loadString("msg.format.cachesaved"), cache.getCachePath()));
+			} catch(IOException e){
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Returns the table definitions of the data file, taken from the cache if loaded.
+	 * @param path
+	 * @param cache
+	 * @return
+	 */
+	private List<Table> readTables(String path, IndexCache cache){
+		if(cache != null && cache.isLoaded()){
+			return new ArrayList<>(cache.getTables());
+		}
+
+		List<Table> tables = TableParser.readTablesFromFile(path);
+		if(cache != null){
+			cache.setTables(new ArrayList<>(tables));
+		}
+
+		return tables;
 	}
 
 	/**
@@ -124,23 +705,53 @@ public class Workflow {
 	}
 
 	/**
-	 * Returns a suitable row source.
-	 * @param table
-	 * @param filePath
+	 * Returns suitable row sources for the specified tables, mapped by the table names.
+	 * The rows of all tables are collected within a single read of the file, which is split into
+	 * chunks parsed on the configured number of threads. Only the primary key values are tokenized
+	 * while reading, the remaining values are tokenized when rows differ. In lazy mode the row indices
+	 * are taken from the cache if it holds those of all tables, otherwise they are added to the cache
+	 * together with the restart points of a compressed file.
+	 * @param tables
+	 * @param dataFile
+	 * @param monitor
+	 * @param cache may be null
 	 * @return
 	 */
-	private RowSource buildRowSource(Table table, String filePath){
+	private Map<String, RowSource> buildRowSources(List<Table> tables, DataFile dataFile, PipelineMonitor monitor, IndexCache cache){
+		Map<String, RowSource> sources = new HashMap<>();
 		if(isLazyMode){
-			return new LazyRowRource(table, filePath, RowParser.readRowLinesFromTable(table, filePath));
+			Map<String, RowIndex> indices = cache != null ? cache.getIndices(tables) : null;
+			if(indices == null){
+				indices = RowParser.readRowIndicesFromTables(tables, dataFile, ParseMode.KeyOnly, threadCount, monitor);
+				if(cache != null){
+					cache.putIndices(indices);
+					cache.setRestartPoints(dataFile.getRestartPoints());
+				}
+			} else {
+				dataFile.addRestartPoints(cache.getRestartPoints());
+			}
+			for (Table table : tables) {
+				sources.put(table.getName(), new LazyRowRource(table, dataFile, indices.get(table.getName()), ParseMode.KeyOnly));
+			}
+		} else if(isOffHeapMode){
+			Map<String, RowArena> arenas = RowParser.readRowArenasFromTables(tables, dataFile.getPath(), ParseMode.KeyOnly, threadCount, monitor);
+			for (Table table : tables) {
+				sources.put(table.getName(), new ArenaRowSource(table, arenas.get(table.getName()), ParseMode.KeyOnly));
+			}
 		} else {
-			return new EagerRowSource(table, RowParser.readRowsFromTable(table, filePath));
+			Map<String, RowStore> stores = RowParser.readRowsFromTables(tables, dataFile.getPath(), ParseMode.KeyOnly, threadCount, monitor);
+			for (Table table : tables) {
+				sources.put(table.getName(), new EagerRowSource(table, stores.get(table.getName())));
+			}
 		}
+
+		return sources;
 	}
 
-	private void printTables(String headLine, List<Table> tables, boolean append){
+	private void printTables(String directory, String headLine, List<Table> tables, boolean append){
 		BufferedWriter writer = null;
 		try{
-			writer = new BufferedWriter(new FileWriter(outputDir + "\\" + TABLE_OUTPUT_FILE, append));
+			writer = new BufferedWriter(new FileWriter(directory + "\\" + TABLE_OUTPUT_FILE, append));
 			writer.newLine();
 			writer.write(headLine);
 			writer.newLine();
@@ -167,4 +778,30 @@ public class Workflow {
 		}
 	}
 
+	/**
+	 * Represents a changed file together with the state of its processing.
+	 */
+	private static class Candidate {
+
+		private String file;
+		private String outputDir;
+		private boolean isLog;
+		private IndexCache cache;
+		private List<Table> tables;
+		private List<Table> oMatched = new ArrayList<>();
+		private List<Table> cMatched = new ArrayList<>();
+		private DataFile dataFile;
+		private Map<String, RowSource> sources;
+		private Map<String, Map<IndexKey, RowChange>> changes;
+		private RunJournal journal;
+		private Map<String, Future<String>> results = new HashMap<>();
+
+		public Candidate(String file, String outputDir) {
+			this.file = file;
+			this.outputDir = outputDir;
+			this.isLog = file.toLowerCase().endsWith(LOG_EXTENSION);
+		}
+
+	}
+
 }
\ No newline at end of file
@@ -14,8 +14,19 @@ public enum Argument {
 	PropertyFile("pFile", false),
 	IncludeTables("inTables", false),
 	ExcludeTables("exTables", false),
+	Threads("threads", false),
+	Shards("shards", false),
+	ControlFile("ctrlFile", false),
+	Format("format", false),
+	JdbcUrl("jdbcUrl", false),
+	JdbcBatch("jdbcBatch", false),
+	JdbcCommit("jdbcCommit", false),
 	Interactive("interactive"),
-	Lazy("lazy");
+	Lazy("lazy"),
+	OffHeap("offHeap"),
+	Resume("resume"),
+	Cache("cache"),
+	Gzip("gzip");
 
 	private String definition;
 	private boolean isFlag;
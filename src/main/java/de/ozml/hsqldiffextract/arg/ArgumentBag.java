@@ -10,6 +10,7 @@ import java.util.Scanner;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import de.ozml.hsqldiffextract.JdbcSink;
 import de.ozml.hsqldiffextract.res.Res;
 
 /**
@@ -40,6 +41,38 @@ public class ArgumentBag {
 		return collectArg(Lazy.getDefinition()) != null;
 	}
 
+	/**
+	 * Returns whether off heap mode is requested.
+	 * @return
+	 */
+	public boolean isOffHeapMode(){
+		return collectArg(OffHeap.getDefinition()) != null;
+	}
+
+	/**
+	 * Returns whether an interrupted run shall be resumed.
+	 * @return
+	 */
+	public boolean isResumeMode(){
+		return collectArg(Resume.getDefinition()) != null;
+	}
+
+	/**
+	 * Returns whether the index cache is requested.
+	 * @return
+	 */
+	public boolean isCacheMode(){
+		return collectArg(Cache.getDefinition()) != null;
+	}
+
+	/**
+	 * Returns whether the output files shall be compressed.
+	 * @return
+	 */
+	public boolean isGzipMode(){
+		return collectArg(Gzip.getDefinition()) != null;
+	}
+
 	/**
 	 * Returns the number of arguments contained by this instance.
 	 * @return
@@ -84,6 +117,24 @@ public class ArgumentBag {
 		return collectArg(argDef, line -> fileExists(line), msg, errMsg);
 	}
 
+	/**
+	 * Returns the values for the changed files, which can be passed as comma separated list.
+	 * If the interactive mode is activated the value is acquired through user input.
+	 * @return
+	 */
+	public List<String> getChangedFiles(){
+		String msg = "\n" + String.format(Res.loadString("msg.format.promptfile"), Res.loadString("cfile"));
+		String errMsg = "\n" + Res.loadString("msg.filenonexist");
+		String argDef = ChangedFile.getDefinition();
+
+		String files = collectArg(argDef, line -> splitFiles(line).stream().allMatch(file -> fileExists(file)), msg, errMsg);
+		if(files == null){
+			return null;
+		}
+
+		return splitFiles(files);
+	}
+
 	/**
 	 * Returns the value for the output directory. If the interactive mode is activated
 	 * the calue is acquired through user input.
@@ -131,6 +182,112 @@ public class ArgumentBag {
 			.collect(Collectors.toList());
 	}
 
+	/**
+	 * Returns the number of threads used to process the tables. If the argument is missing
+	 * or no positive number, a single thread is used.
+	 * @return
+	 */
+	public int getThreadCount() {
+		return collectCount(Threads.getDefinition());
+	}
+
+	/**
+	 * Returns the number of shards a single table is split into. If the argument is missing
+	 * or no positive number, tables are not split.
+	 * @return
+	 */
+	public int getShardCount() {
+		return collectCount(Shards.getDefinition());
+	}
+
+	/**
+	 * Returns the path of the file which is watched for control commands or null if
+	 * the argument is missing.
+	 * @return
+	 */
+	public String getControlFile() {
+		String controlFile = collectArg(ControlFile.getDefinition());
+		if(controlFile == null || controlFile.isBlank()){
+			return null;
+		}
+
+		return controlFile.trim();
+	}
+
+	/**
+	 * Returns the name of the output format or null if the argument is missing.
+	 * @return
+	 */
+	public String getOutputFormat() {
+		String format = collectArg(Format.getDefinition());
+		if(format == null || format.isBlank()){
+			return null;
+		}
+
+		return format.trim();
+	}
+
+	/**
+	 * Returns the url of the database the changes are applied to or null if the argument is missing.
+	 * @return
+	 */
+	public String getJdbcUrl() {
+		String jdbcUrl = collectArg(JdbcUrl.getDefinition());
+		if(jdbcUrl == null || jdbcUrl.isBlank()){
+			return null;
+		}
+
+		return jdbcUrl.trim();
+	}
+
+	/**
+	 * Returns the number of changes of an operation which are applied at once. If the argument
+	 * is missing or no positive number, the default of the {@link JdbcSink} is used.
+	 * @return
+	 */
+	public int getJdbcBatchSize() {
+		return collectCount(JdbcBatch.getDefinition(), JdbcSink.DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Returns the number of changes after which the transaction is committed. If the argument
+	 * is missing or no positive number, the default of the {@link JdbcSink} is used.
+	 * @return
+	 */
+	public int getJdbcCommitInterval() {
+		return collectCount(JdbcCommit.getDefinition(), JdbcSink.DEFAULT_COMMIT_INTERVAL);
+	}
+
+	/**
+	 * Returns the positive number value of the argument or 1 if the argument is missing or invalid.
+	 * @param arg argument definition string
+	 * @return
+	 */
+	private int collectCount(String arg) {
+		return collectCount(arg, 1);
+	}
+
+	/**
+	 * Returns the positive number value of the argument or the default value if the argument is
+	 * missing or invalid.
+	 * @param arg argument definition string
+	 * @param defaultValue
+	 * @return
+	 */
+	private int collectCount(String arg, int defaultValue) {
+		String count = collectArg(arg);
+		if(count == null || count.isBlank()){
+			return defaultValue;
+		}
+
+		try {
+			int value = Integer.parseInt(count.trim());
+			return value > 0 ? value : defaultValue;
+		} catch(NumberFormatException e){
+			return defaultValue;
+		}
+	}
+
 	/**
 	 * Calls {@link #collectArg(String, boolean, Predicate, String, String)} with the {@code nonInteractive}
 	 * argument set to true.
@@ -206,6 +363,17 @@ public class ArgumentBag {
 		return !file.isEmpty() && new File(file).isFile();
 	}
 
+	/**
+	 * Splits the comma separated list of file paths.
+	 * @param files
+	 * @return
+	 */
+	private List<String> splitFiles(String files) {
+		return Arrays.asList(files.split(","))
+			.stream().map(String::trim)
+			.collect(Collectors.toList());
+	}
+
 	/**
 	 * Checks if the specified directory exists.
 	 * @param directory directory path
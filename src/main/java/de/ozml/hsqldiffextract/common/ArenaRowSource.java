@@ -0,0 +1,226 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.parser.ParseMode;
+import de.ozml.hsqldiffextract.parser.RowParser;
+
+/**
+ * Represents a {@link RowSource} which holds all row entities of a table outside of the java heap
+ * within a {@link RowArena}. The row entities are only views, which are created from the stored
+ * line when requested and can be discarded afterwards. Like the {@link LazyRowRource} it provides
+ * fingerprints, so rows with equal content are not created at all.
+ */
+public class ArenaRowSource implements RowSource {
+
+	private Table table;
+	private RowArena arena;
+	private ParseMode parseMode;
+	private int[] sortedSlots;
+
+	public ArenaRowSource(Table table, RowArena arena) {
+		this(table, arena, ParseMode.Full);
+	}
+
+	/**
+	 * Creates a source whose rows are tokenized as determined by the parse mode when requested.
+	 * @param table
+	 * @param arena
+	 * @param parseMode
+	 */
+	public ArenaRowSource(Table table, RowArena arena, ParseMode parseMode) {
+		this.table = table;
+		this.arena = arena;
+		this.parseMode = parseMode;
+		this.sortedSlots = arena.getKeys().sortSlots();
+	}
+
+	@Override
+	public String getTableName() {
+		return table.getName();
+	}
+
+	@Override
+	public int count() {
+		return arena.size();
+	}
+
+	@Override
+	public boolean containsRow(IndexKey key) {
+		return arena.getSlot(key) != -1;
+	}
+
+	@Override
+	public Row getRow(IndexKey key) {
+		int slot = arena.getSlot(key);
+		return slot != -1 ? readRow(slot) : null;
+	}
+
+	@Override
+	public List<Row> getAllRows() {
+		return getPart(0, count());
+	}
+
+	@Override
+	public List<Row> getPart(int startIndex, int number) {
+		List<Row> list = new ArrayList<>();
+		collectPart(startIndex, number, (key, row) -> list.add(row));
+
+		return list;
+	}
+
+	@Override
+	public Map<IndexKey, Row> getPartMap(int startIndex, int number) {
+		Map<IndexKey, Row> map = new HashMap<>();
+		collectPart(startIndex, number, (key, row) -> map.put(key, row));
+
+		return map;
+	}
+
+	@Override
+	public List<Row> getRows(Collection<IndexKey> keys) {
+		List<IndexKey> keyList = RowUtil.sortIndexKeyList(keys);
+		List<Row> list = new ArrayList<>();
+		collectRows(keyList, (key, row) -> list.add(row));
+
+		return list;
+	}
+
+	@Override
+	public Map<IndexKey, Row> getRowsMap(Collection<IndexKey> keys) {
+		Map<IndexKey, Row> map = new HashMap<>();
+		collectRows(keys, (key, row) -> map.put(key, row));
+
+		return map;
+	}
+
+	@Override
+	public boolean isOrdered() {
+		return arena.getKeys().isOrdered();
+	}
+
+	@Override
+	public boolean hasFingerprints() {
+		return true;
+	}
+
+	@Override
+	public IndexKey getKeyAt(int index) {
+		return arena.getKeys().getKey(sortedSlots[index]);
+	}
+
+	@Override
+	public int indexOf(IndexKey key) {
+		return arena.getKeys().indexOf(sortedSlots, key);
+	}
+
+	@Override
+	public RowCursor openCursor() {
+		return new SlotCursor(0, sortedSlots.length);
+	}
+
+	@Override
+	public RowCursor openCursor(IndexKey fromKey, IndexKey toKey) {
+		int startIndex = fromKey != null ? indexOf(fromKey) : 0;
+		int endIndex = toKey != null ? indexOf(toKey) : sortedSlots.length;
+
+		return new SlotCursor(startIndex, Math.max(startIndex, endIndex));
+	}
+
+	/**
+	 * Passes the rows with the specified keys to the handler in the order of the keys.
+	 * Keys which are not contained are skipped.
+	 * @param keys
+	 * @param handler
+	 */
+	private void collectRows(Collection<IndexKey> keys, BiConsumer<IndexKey, Row> handler){
+		for (IndexKey key : keys) {
+			int slot = arena.getSlot(key);
+			if(slot != -1){
+				Row row = readRow(slot);
+				if(row != null){
+					handler.accept(key, row);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Passes the rows of the specified part of the sorted key order to the handler.
+	 * @param startIndex
+	 * @param number
+	 * @param handler
+	 */
+	private void collectPart(int startIndex, int number, BiConsumer<IndexKey, Row> handler){
+		for(int i = startIndex; i < startIndex + number && i < sortedSlots.length; i++){
+			Row row = readRow(sortedSlots[i]);
+			if(row != null){
+				handler.accept(arena.getKeys().getKey(sortedSlots[i]), row);
+			}
+		}
+	}
+
+	/**
+	 * Creates the view of the row in the specified slot.
+	 * @param slot
+	 * @return
+	 */
+	private Row readRow(int slot) {
+		return RowParser.extractRow(table, arena.readLine(slot), parseMode);
+	}
+
+	/**
+	 * Cursor which visits the rows of a part of the sorted key order. A row view is only
+	 * created when requested.
+	 */
+	private class SlotCursor implements RowCursor {
+
+		private int position;
+		private int endIndex;
+		private Row row;
+
+		public SlotCursor(int startIndex, int endIndex) {
+			this.position = startIndex - 1;
+			this.endIndex = endIndex;
+		}
+
+		@Override
+		public boolean next() {
+			row = null;
+			return ++position < endIndex;
+		}
+
+		@Override
+		public IndexKey getKey() {
+			return arena.getKeys().getKey(sortedSlots[position]);
+		}
+
+		@Override
+		public Row getRow() {
+			if(row == null){
+				row = readRow(sortedSlots[position]);
+			}
+
+			return row;
+		}
+
+		@Override
+		public long getFingerprint() {
+			return arena.getFingerprint(sortedSlots[position]);
+		}
+
+		@Override
+		public void close() {
+			row = null;
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.Arrays;
+
+/**
+ * Represents a hash map from byte array keys to non negative {@code int} values. Like
+ * {@link LongIntHashMap} the entries are stored with open addressing and linear probing,
+ * the key arrays themselves are referenced and must not be modified.
+ */
+public class BytesIntHashMap {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private byte[][] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	public BytesIntHashMap() {
+		this.keys = new byte[INITIAL_CAPACITY][];
+		this.values = new int[INITIAL_CAPACITY];
+		this.mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Returns the value for the key or -1 if the key is not contained.
+	 * @param key
+	 * @return
+	 */
+	public int get(byte[] key) {
+		for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+			if(keys[i] == null){
+				return -1;
+			}
+			if(Arrays.equals(keys[i], key)){
+				return values[i];
+			}
+		}
+	}
+
+	/**
+	 * Associates the non negative value with the key.
+	 * @param key
+	 * @param value
+	 */
+	public void put(byte[] key, int value) {
+		for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+			if(keys[i] == null){
+				keys[i] = key;
+				values[i] = value;
+				if(++size > keys.length * 3 / 4){
+					grow();
+				}
+				return;
+			}
+			if(Arrays.equals(keys[i], key)){
+				values[i] = value;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Doubles the capacity and reinserts all entries.
+	 */
+	private void grow() {
+		byte[][] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new byte[oldKeys.length * 2][];
+		values = new int[oldValues.length * 2];
+		mask = keys.length - 1;
+		for(int j = 0; j < oldKeys.length; j++){
+			if(oldKeys[j] != null){
+				int i = hash(oldKeys[j]) & mask;
+				while(keys[i] != null){
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Returns the spread hash code of the key.
+	 * @param key
+	 * @return
+	 */
+	private static int hash(byte[] key) {
+		int h = Arrays.hashCode(key) * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+}
\ No newline at end of file
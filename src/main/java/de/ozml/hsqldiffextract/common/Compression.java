@@ -0,0 +1,90 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BiConsumer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Determines how a sql data file is compressed. The compression is detected from the leading
+ * bytes of the file, so compressed files need no special extension.
+ */
+public enum Compression {
+
+	/**
+	 * The file is plain text.
+	 */
+	None,
+
+	/**
+	 * The file consists of one or more gzip members.
+	 */
+	Gzip,
+
+	/**
+	 * The file is a zlib stream, as written by HSQLDB with {@code hsqldb.script_format=3}.
+	 */
+	Zlib;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Detects the compression of the file. Files which cannot be read are taken as plain text.
+	 * @param path
+	 * @return
+	 */
+	public static Compression detect(String path) {
+		FileInputStream in = null;
+		try{
+			in = new FileInputStream(path);
+			int b1 = in.read();
+			int b2 = in.read();
+			if(b1 == 0x1f && b2 == 0x8b){
+				return Gzip;
+			}
+			// Deflate method, no preset dictionary and a valid header check
+			if(b1 != -1 && b2 != -1 && (b1 & 0x0f) == 8 && (b2 & 0x20) == 0 && ((b1 << 8) | b2) % 31 == 0){
+				return Zlib;
+			}
+		} catch(IOException e){
+		} finally{
+			try{if(in != null) in.close();} catch(Exception e){}
+		}
+
+		return None;
+	}
+
+	/**
+	 * Opens a stream of the decoded content of the file.
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public InputStream open(String path) throws IOException {
+		return open(path, null);
+	}
+
+	/**
+	 * Opens a stream of the decoded content of the file. For gzip files the handler is passed the
+	 * restart point of each further member, see {@link GzipMemberInputStream}.
+	 * @param path
+	 * @param restartHandler may be null
+	 * @return
+	 * @throws IOException
+	 */
+	public InputStream open(String path, BiConsumer<Long, Long> restartHandler) throws IOException {
+		switch(this){
+		case Gzip:
+			GzipMemberInputStream in = new GzipMemberInputStream(path, 0, 0);
+			in.setRestartHandler(restartHandler);
+			return in;
+		case Zlib:
+			return new InflaterInputStream(new FileInputStream(path), new Inflater(), BUFFER_SIZE);
+		default:
+			return new FileInputStream(path);
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package de.ozml.hsqldiffextract.common;
+
+/**
+ * Represents the run state of a long running process, which can be paused, resumed and stopped
+ * from another thread. The process calls {@link #checkpoint()} between small units of work, so
+ * a request takes effect at the next checkpoint. An instance can be shared by several processes
+ * to control them together.
+ */
+public class ControlState implements Controlable {
+
+	private static final int STATE_RUNNING = 0;
+	private static final int STATE_PAUSED = 1;
+	private static final int STATE_STOPPED = 2;
+
+	private volatile int state = STATE_RUNNING;
+
+	/**
+	 * Resumes the processes if paused.
+	 */
+	@Override
+	public synchronized void start() {
+		if(state == STATE_PAUSED){
+			state = STATE_RUNNING;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Stops the processes. A stopped state cannot be resumed.
+	 */
+	@Override
+	public synchronized void stop() {
+		state = STATE_STOPPED;
+		notifyAll();
+	}
+
+	/**
+	 * Pauses the processes until they are resumed or stopped.
+	 */
+	@Override
+	public synchronized void pause() {
+		if(state == STATE_RUNNING){
+			state = STATE_PAUSED;
+		}
+	}
+
+	/**
+	 * Checks whether the processes are paused.
+	 * @return
+	 */
+	public boolean isPaused() {
+		return state == STATE_PAUSED;
+	}
+
+	/**
+	 * Checks whether the processes are stopped.
+	 * @return
+	 */
+	public boolean isStopped() {
+		return state == STATE_STOPPED;
+	}
+
+	/**
+	 * Waits while the processes are paused and returns whether they may continue. A process
+	 * must end its work if false is returned. An interrupted thread is treated as stopped.
+	 * @return
+	 */
+	public boolean checkpoint() {
+		if(state == STATE_RUNNING){
+			return true;
+		}
+
+		synchronized(this){
+			try {
+				while(state == STATE_PAUSED){
+					wait();
+				}
+			} catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				return false;
+			}
+
+			return state == STATE_RUNNING;
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,314 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Provides positional read access to the lines of a sql data file. A single channel is
+ * opened on first access and shared by all users of the instance. Positional reads do not
+ * modify the channel state, so the instance can be used concurrently.
+ * Offsets within a compressed file refer to its decoded content. The content is decoded
+ * forward from the nearest restart point before the requested offset, which is the start
+ * of the file or of a further gzip member, see {@link GzipMemberInputStream}.
+ * A line which exceeds the end of the file, for example as the file is shorter than when it was
+ * indexed, fails with an {@link EOFException}.
+ */
+public class DataFile implements Closeable {
+
+	private static final int WINDOW_SIZE = 1 << 16;
+	private static final int HISTORY_SIZE = 3 * WINDOW_SIZE;
+
+	private String path;
+	private Charset charset;
+	private FileChannel channel;
+	private Compression compression;
+	private TreeMap<Long, Long> restartPoints = new TreeMap<>();
+	private Decoder decoder;
+
+	public DataFile(String path) {
+		this.path = path;
+		this.charset = Charset.defaultCharset();
+		this.compression = Compression.detect(path);
+		this.restartPoints.put(0L, 0L);
+	}
+
+	/**
+	 * Returns the path of the file.
+	 * @return
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the compression of the file.
+	 * @return
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * Returns the restart points of a compressed file, which map positions within the decoded
+	 * content to byte offsets within the file.
+	 * @return
+	 */
+	public synchronized Map<Long, Long> getRestartPoints() {
+		return new TreeMap<>(restartPoints);
+	}
+
+	/**
+	 * Adds a restart point of a compressed file.
+	 * @param position position within the decoded content
+	 * @param fileOffset byte offset within the file
+	 */
+	public synchronized void addRestartPoint(long position, long fileOffset) {
+		restartPoints.put(position, fileOffset);
+	}
+
+	/**
+	 * Adds the restart points of a compressed file.
+	 * @param restartPoints
+	 */
+	public synchronized void addRestartPoints(Map<Long, Long> restartPoints) {
+		this.restartPoints.putAll(restartPoints);
+	}
+
+	/**
+	 * Reads the line at the specified byte offset with a single positional read.
+	 * @param offset byte offset of the line
+	 * @param length byte length of the line
+	 * @return
+	 * @throws IOException
+	 */
+	public String readLine(long offset, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		read(buffer, offset);
+		if(buffer.hasRemaining()){
+			throw createEOFException(offset, length);
+		}
+
+		return new String(buffer.array(), 0, length, charset);
+	}
+
+	/**
+	 * Opens a window for reading lines in ascending offset order. The window reads ahead
+	 * in larger blocks, so consecutive lines are served from memory. A window must not
+	 * be shared between threads.
+	 * @return
+	 */
+	public Window openWindow() {
+		return new Window();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(channel != null){
+			channel.close();
+			channel = null;
+		}
+		if(decoder != null){
+			decoder.close();
+			decoder = null;
+		}
+	}
+
+	/**
+	 * Creates the exception for a line which exceeds the end of the file.
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	private EOFException createEOFException(long offset, int length) {
+		return new EOFException("Line at offset " + offset + " with length " + length + " exceeds the end of " + path);
+	}
+
+	/**
+	 * Fills the buffer with the bytes starting at the specified offset, the buffer is filled
+	 * partially at the end of the file.
+	 * @param buffer
+	 * @param offset
+	 * @throws IOException
+	 */
+	private void read(ByteBuffer buffer, long offset) throws IOException {
+		if(compression != Compression.None){
+			synchronized(this){
+				if(decoder == null){
+					decoder = new Decoder();
+				}
+				decoder.read(buffer, offset);
+			}
+			return;
+		}
+
+		FileChannel fileChannel = channel();
+		while(buffer.hasRemaining()){
+			int read = fileChannel.read(buffer, offset + buffer.position());
+			if(read < 0){
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the shared channel and opens it if necessary.
+	 * @return
+	 * @throws IOException
+	 */
+	private synchronized FileChannel channel() throws IOException {
+		if(channel == null){
+			channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		}
+
+		return channel;
+	}
+
+	/**
+	 * Read ahead buffer over the data file.
+	 */
+	public class Window implements AutoCloseable {
+
+		private ByteBuffer buffer = ByteBuffer.allocate(WINDOW_SIZE);
+		private long bufferOffset = -1;
+		private Decoder decoder = compression != Compression.None ? new Decoder() : null;
+
+		/**
+		 * Reads the line at the specified byte offset. Lines which lie within the current
+		 * window are served without accessing the file.
+		 * @param offset byte offset of the line
+		 * @param length byte length of the line
+		 * @return
+		 * @throws IOException
+		 */
+		public String readLine(long offset, int length) throws IOException {
+			if(length > buffer.capacity()){
+				return DataFile.this.readLine(offset, length);
+			}
+
+			if(bufferOffset < 0 || offset < bufferOffset || offset + length > bufferOffset + buffer.limit()){
+				buffer.clear();
+				if(decoder != null){
+					decoder.read(buffer, offset);
+				} else {
+					read(buffer, offset);
+				}
+				buffer.flip();
+				bufferOffset = offset;
+				if(length > buffer.limit()){
+					throw createEOFException(offset, length);
+				}
+			}
+
+			return new String(buffer.array(), (int) (offset - bufferOffset), length, charset);
+		}
+
+		/**
+		 * Releases the decoder of the window.
+		 */
+		@Override
+		public void close() {
+			if(decoder != null){
+				decoder.close();
+			}
+		}
+
+	}
+
+	/**
+	 * Decodes a compressed file forward. The last decoded bytes are kept, so reading slightly
+	 * before the end of the former read does not restart the decoding. Reading further back
+	 * restarts the decoding at the nearest restart point before the requested offset.
+	 */
+	private class Decoder {
+
+		private InputStream in;
+		private byte[] history = new byte[HISTORY_SIZE];
+		private long historyOffset;
+		private int historyLength;
+
+		/**
+		 * Fills the buffer with the decoded bytes starting at the specified offset, the buffer is
+		 * filled partially at the end of the content.
+		 * @param buffer
+		 * @param offset
+		 * @throws IOException
+		 */
+		public void read(ByteBuffer buffer, long offset) throws IOException {
+			while(buffer.hasRemaining()){
+				long target = offset + buffer.position();
+				long historyEnd = historyOffset + historyLength;
+				if(in != null && target >= historyOffset && target < historyEnd){
+					int length = (int) Math.min(buffer.remaining(), historyEnd - target);
+					buffer.put(history, (int) (target - historyOffset), length);
+					continue;
+				}
+
+				Map.Entry<Long, Long> restartPoint;
+				synchronized(DataFile.this){
+					restartPoint = restartPoints.floorEntry(target);
+				}
+				if(in == null || target < historyOffset || restartPoint.getKey() > historyEnd){
+					restart(restartPoint.getKey(), restartPoint.getValue());
+				}
+				if(!decodeNext()){
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Starts decoding at the restart point.
+		 * @param position
+		 * @param fileOffset
+		 * @throws IOException
+		 */
+		private void restart(long position, long fileOffset) throws IOException {
+			close();
+			if(compression == Compression.Gzip){
+				GzipMemberInputStream gzip = new GzipMemberInputStream(path, position, fileOffset);
+				gzip.setRestartHandler(DataFile.this::addRestartPoint);
+				in = gzip;
+			} else {
+				in = compression.open(path);
+			}
+			historyOffset = position;
+			historyLength = 0;
+		}
+
+		/**
+		 * Decodes the next block into the history, dropping the oldest bytes if it is full.
+		 * @return false at the end of the content
+		 * @throws IOException
+		 */
+		private boolean decodeNext() throws IOException {
+			int keep = Math.min(historyLength, HISTORY_SIZE - WINDOW_SIZE);
+			System.arraycopy(history, historyLength - keep, history, 0, keep);
+			historyOffset += historyLength - keep;
+			historyLength = keep;
+
+			int read = in.read(history, historyLength, WINDOW_SIZE);
+			if(read <= 0){
+				return false;
+			}
+			historyLength += read;
+
+			return true;
+		}
+
+		public void close() {
+			try{if(in != null) in.close();} catch(Exception e){}
+			in = null;
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -11,16 +11,24 @@ import de.ozml.hsqldiffextract.entity.Row;
 import de.ozml.hsqldiffextract.entity.Table;
 
 /**
- * Represents a {@link RowSource} which holds all row entities of a table.
+ * Represents a {@link RowSource} which holds all row entities of a table. The rows are kept
+ * in a {@link RowStore} in order of their occurrence within the sql file. The sorted key order
+ * is determined once on creation, so parts and ranges are served without further sorting.
  */
 public class EagerRowSource implements RowSource {
 
 	private Table table;
-	private Map<String, Row> rows;
+	private RowStore rows;
+	private int[] sortedSlots;
 
-	public EagerRowSource(Table table, Map<String, Row> rows){
+	public EagerRowSource(Table table, RowStore rows){
 		this.table = table;
 		this.rows = rows;
+		this.sortedSlots = rows.getKeys().sortSlots();
+	}
+
+	public EagerRowSource(Table table, Map<IndexKey, Row> rows){
+		this(table, toRowStore(rows));
 	}
 
 	@Override
@@ -34,13 +42,14 @@ public class EagerRowSource implements RowSource {
 	}
 
 	@Override
-	public boolean containsRow(String key) {
-		return rows.containsKey(key);
+	public boolean containsRow(IndexKey key) {
+		return rows.getKeys().getSlot(key) != -1;
 	}
 
 	@Override
-	public Row getRow(String key) {
-		return rows.get(key);
+	public Row getRow(IndexKey key) {
+		int slot = rows.getKeys().getSlot(key);
+		return slot != -1 ? rows.getRow(slot) : null;
 	}
 
 	@Override
@@ -51,27 +60,40 @@ public class EagerRowSource implements RowSource {
 	@Override
 	public List<Row> getPart(int startIndex, int number) {
 		List<Row> list = new ArrayList<>();
-		List<String> indexList = RowUtil.sortIndexKeyList(rows.keySet());
-		for(int i = startIndex; i < startIndex + number && i < indexList.size(); i++){
-			list.add(rows.get(indexList.get(i)));
+		for(int i = startIndex; i < startIndex + number && i < sortedSlots.length; i++){
+			list.add(rows.getRow(sortedSlots[i]));
 		}
 
 		return list;
 	}
 
 	@Override
-	public Map<String, Row> getPartMap(int startIndex, int number) {
-		Map<String, Row> map = new HashMap<>();
-		List<String> indexList = RowUtil.sortIndexKeyList(rows.keySet());
-		for(int i = startIndex; i < startIndex + number && i < indexList.size(); i++){
-			map.put(indexList.get(i), rows.get(indexList.get(i)));
+	public Map<IndexKey, Row> getPartMap(int startIndex, int number) {
+		Map<IndexKey, Row> map = new HashMap<>();
+		for(int i = startIndex; i < startIndex + number && i < sortedSlots.length; i++){
+			map.put(rows.getKeys().getKey(sortedSlots[i]), rows.getRow(sortedSlots[i]));
 		}
 
 		return map;
 	}
 
+	/**
+	 * Returns the rows whose keys lie within the specified range, sorted by the keys.
+	 * The start key is inclusive, the end key exclusive. A {@code null} value leaves
+	 * the range open to that side.
+	 * @param fromKey
+	 * @param toKey
+	 * @return
+	 */
+	public List<Row> getRange(IndexKey fromKey, IndexKey toKey) {
+		int startIndex = fromKey != null ? indexOf(fromKey) : 0;
+		int endIndex = toKey != null ? indexOf(toKey) : sortedSlots.length;
+
+		return getPart(startIndex, endIndex - startIndex);
+	}
+
 	@Override
-	public List<Row> getRows(Collection<String> keys) {
+	public List<Row> getRows(Collection<IndexKey> keys) {
 		List<Row> list = new ArrayList<>();
 		collectRows(keys, (key, row) -> list.add(row));
 
@@ -79,24 +101,56 @@ public class EagerRowSource implements RowSource {
 	}
 
 	@Override
-	public Map<String, Row> getRowsMap(Collection<String> keys) {
-		Map<String, Row> map = new HashMap<>();
+	public Map<IndexKey, Row> getRowsMap(Collection<IndexKey> keys) {
+		Map<IndexKey, Row> map = new HashMap<>();
 		collectRows(keys, (key, row) -> map.put(key, row));
 
 		return map;
 	}
 
+	@Override
+	public boolean isOrdered() {
+		return rows.getKeys().isOrdered();
+	}
+
+	@Override
+	public boolean hasFingerprints() {
+		return false;
+	}
+
+	@Override
+	public IndexKey getKeyAt(int index) {
+		return rows.getKeys().getKey(sortedSlots[index]);
+	}
+
+	@Override
+	public int indexOf(IndexKey key) {
+		return rows.getKeys().indexOf(sortedSlots, key);
+	}
+
+	@Override
+	public RowCursor openCursor() {
+		return new SlotCursor(0, sortedSlots.length);
+	}
+
+	@Override
+	public RowCursor openCursor(IndexKey fromKey, IndexKey toKey) {
+		int startIndex = fromKey != null ? indexOf(fromKey) : 0;
+		int endIndex = toKey != null ? indexOf(toKey) : sortedSlots.length;
+
+		return new SlotCursor(startIndex, Math.max(startIndex, endIndex));
+	}
+
 	/**
 	 * Reads the rows from key list and passes them to the handler.
 	 * @param keys
 	 * @param handler
 	 */
-	private void collectRows(Collection<String> keys, BiConsumer<String, Row> handler){
+	private void collectRows(Collection<IndexKey> keys, BiConsumer<IndexKey, Row> handler){
 		if(keys != null && !keys.isEmpty()){
-			List<String> indexList = new ArrayList<>(keys);
-			indexList.sort((RowUtil.indexKeyComparator()));
+			List<IndexKey> indexList = RowUtil.sortIndexKeyList(keys);
 			for(int i = 0; i < indexList.size(); i++){
-				Row row = rows.get(indexList.get(i));
+				Row row = getRow(indexList.get(i));
 				if(row != null){
 					handler.accept(indexList.get(i), row);
 				}
@@ -104,4 +158,56 @@ public class EagerRowSource implements RowSource {
 		}
 	}
 
+	/**
+	 * Builds a row store from the map, keeping the iteration order of the map.
+	 * @param rows
+	 * @return
+	 */
+	private static RowStore toRowStore(Map<IndexKey, Row> rows){
+		RowStore store = new RowStore();
+		rows.forEach(store::add);
+
+		return store;
+	}
+
+	/**
+	 * Cursor which visits the rows of a part of the sorted key order.
+	 */
+	private class SlotCursor implements RowCursor {
+
+		private int position;
+		private int endIndex;
+
+		public SlotCursor(int startIndex, int endIndex) {
+			this.position = startIndex - 1;
+			this.endIndex = endIndex;
+		}
+
+		@Override
+		public boolean next() {
+			return ++position < endIndex;
+		}
+
+		@Override
+		public IndexKey getKey() {
+			return rows.getKeys().getKey(sortedSlots[position]);
+		}
+
+		@Override
+		public Row getRow() {
+			return rows.getRow(sortedSlots[position]);
+		}
+
+		@Override
+		public long getFingerprint() {
+			return getRow().getFingerprint();
+		}
+
+		@Override
+		public void close() {
+			position = endIndex;
+		}
+
+	}
+
 }
\ No newline at end of file
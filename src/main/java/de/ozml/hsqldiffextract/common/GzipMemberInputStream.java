@@ -0,0 +1,222 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes a gzip file of one or more members. Unlike {@link java.util.zip.GZIPInputStream} the
+ * stream reports the start of each member as restart point, which is the position within the
+ * decoded content together with the byte offset within the file. Decoding can be started at any
+ * restart point, as each member is decoded independently. Data after the last member which is no
+ * gzip header is ignored.
+ */
+public class GzipMemberInputStream extends InputStream {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int FLAG_HCRC = 0x02;
+	private static final int FLAG_EXTRA = 0x04;
+	private static final int FLAG_NAME = 0x08;
+	private static final int FLAG_COMMENT = 0x10;
+
+	private FileInputStream in;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private long bufferOffset;
+	private int bufferLength;
+	private int bufferPosition;
+	private Inflater inflater = new Inflater(true);
+	private CRC32 crc = new CRC32();
+	private long position;
+	private boolean isEnd;
+	private BiConsumer<Long, Long> restartHandler;
+
+	/**
+	 * Opens the stream at a restart point.
+	 * @param path path to the gzip file
+	 * @param position position of the restart point within the decoded content
+	 * @param fileOffset byte offset of the restart point within the file
+	 * @throws IOException
+	 */
+	public GzipMemberInputStream(String path, long position, long fileOffset) throws IOException {
+		this.in = new FileInputStream(path);
+		this.in.getChannel().position(fileOffset);
+		this.bufferOffset = fileOffset;
+		this.position = position;
+		if(!readHeader()){
+			close();
+			throw new IOException("Not in gzip format");
+		}
+	}
+
+	/**
+	 * Sets the handler which is passed the position within the decoded content and the byte
+	 * offset within the file of each further member.
+	 * @param restartHandler
+	 */
+	public void setRestartHandler(BiConsumer<Long, Long> restartHandler) {
+		this.restartHandler = restartHandler;
+	}
+
+	/**
+	 * Returns the position within the decoded content.
+	 * @return
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0){
+			return 0;
+		}
+
+		while(!isEnd){
+			if(inflater.finished()){
+				nextMember();
+				continue;
+			}
+			if(inflater.needsInput()){
+				if(!fill()){
+					throw new EOFException("Unexpected end of gzip file");
+				}
+				inflater.setInput(buffer, bufferPosition, bufferLength - bufferPosition);
+			}
+
+			int read;
+			try {
+				read = inflater.inflate(b, off, len);
+			} catch(DataFormatException e){
+				throw new IOException(e);
+			}
+			bufferPosition = bufferLength - inflater.getRemaining();
+			if(read > 0){
+				crc.update(b, off, read);
+				position += read;
+				return read;
+			}
+		}
+
+		return -1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		in.close();
+	}
+
+	/**
+	 * Checks the trailer of the finished member and starts the next member if there is one.
+	 * @throws IOException
+	 */
+	private void nextMember() throws IOException {
+		long checksum = readInt();
+		readInt();
+		if(checksum != crc.getValue()){
+			throw new IOException("Corrupt gzip member");
+		}
+
+		long fileOffset = bufferOffset + bufferPosition;
+		inflater.reset();
+		crc.reset();
+		if(readHeader()){
+			if(restartHandler != null){
+				restartHandler.accept(position, fileOffset);
+			}
+		} else {
+			isEnd = true;
+		}
+	}
+
+	/**
+	 * Reads the header of a member.
+	 * @return false if there is no further member
+	 * @throws IOException
+	 */
+	private boolean readHeader() throws IOException {
+		if(readByte() != 0x1f || readByte() != 0x8b || readByte() != 8){
+			return false;
+		}
+
+		int flags = readByte();
+		skip(6);
+		if((flags & FLAG_EXTRA) != 0){
+			skip(readByte() | (readByte() << 8));
+		}
+		if((flags & FLAG_NAME) != 0){
+			while(readByte() > 0);
+		}
+		if((flags & FLAG_COMMENT) != 0){
+			while(readByte() > 0);
+		}
+		if((flags & FLAG_HCRC) != 0){
+			skip(2);
+		}
+
+		return true;
+	}
+
+	private long readInt() throws IOException {
+		long value = 0;
+		for(int i = 0; i < 4; i++){
+			int b = readByte();
+			if(b == -1){
+				throw new EOFException("Unexpected end of gzip file");
+			}
+			value |= (long) b << (8 * i);
+		}
+
+		return value;
+	}
+
+	private void skip(int count) throws IOException {
+		for(int i = 0; i < count; i++){
+			if(readByte() == -1){
+				throw new EOFException("Unexpected end of gzip file");
+			}
+		}
+	}
+
+	/**
+	 * Returns the next byte of the file outside of the compressed data or -1 at its end.
+	 * @return
+	 * @throws IOException
+	 */
+	private int readByte() throws IOException {
+		if(!fill()){
+			return -1;
+		}
+
+		return buffer[bufferPosition++] & 0xff;
+	}
+
+	/**
+	 * Reads the next bytes of the file into the buffer if all bytes of the buffer are consumed.
+	 * @return false at the end of the file
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if(bufferPosition < bufferLength){
+			return true;
+		}
+
+		bufferOffset += bufferLength;
+		bufferPosition = 0;
+		bufferLength = Math.max(in.read(buffer), 0);
+
+		return bufferLength > 0;
+	}
+
+}
\ No newline at end of file
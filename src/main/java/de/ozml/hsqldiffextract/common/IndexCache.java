@@ -0,0 +1,365 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Represents a sidecar file next to a sql data file, which holds the table definitions and the
+ * row indices read from it. Loading the cache replaces parsing the data file again. The cache is
+ * bound to the size, the modification time and a digest of the data file. The digest covers
+ * {@value #SAMPLE_COUNT} blocks spread over the file, so it can be computed without reading the
+ * whole file. A cache which does not match the data file is stale and not loaded. For a compressed
+ * data file the cache also holds the restart points, at which the decoding can be started.
+ */
+public class IndexCache {
+
+	public static final String CACHE_EXTENSION = ".idx";
+
+	private static final int MAGIC = 0x48444958;
+	private static final int VERSION = 2;
+	private static final int SAMPLE_COUNT = 16;
+	private static final int SAMPLE_SIZE = 1 << 16;
+
+	private String path;
+	private String cachePath;
+	private byte[] signature;
+	private List<Table> tables;
+	private Map<String, RowIndex> indices = new HashMap<>();
+	private Map<Long, Long> restartPoints = new TreeMap<>();
+	private boolean isLoaded;
+	private boolean isModified;
+
+	public IndexCache(String path) {
+		this.path = path;
+		this.cachePath = path + CACHE_EXTENSION;
+	}
+
+	/**
+	 * Returns the path of the cache file.
+	 * @return
+	 */
+	public String getCachePath() {
+		return cachePath;
+	}
+
+	/**
+	 * Checks whether a cache file exists.
+	 * @return
+	 */
+	public boolean exists() {
+		return Files.exists(Paths.get(cachePath));
+	}
+
+	/**
+	 * Checks whether the cache was loaded.
+	 * @return
+	 */
+	public boolean isLoaded() {
+		return isLoaded;
+	}
+
+	/**
+	 * Checks whether the cache content was changed since it was loaded.
+	 * @return
+	 */
+	public boolean isModified() {
+		return isModified;
+	}
+
+	/**
+	 * Returns the cached table definitions or {@code null} if none are cached.
+	 * @return
+	 */
+	public List<Table> getTables() {
+		return tables;
+	}
+
+	/**
+	 * Sets the table definitions of the data file.
+	 * @param tables
+	 */
+	public void setTables(List<Table> tables) {
+		this.tables = tables;
+		this.isModified = true;
+	}
+
+	/**
+	 * Returns the cached row indices of the specified tables, mapped by the table names, or
+	 * {@code null} if not all of them are cached.
+	 * @param tables
+	 * @return
+	 */
+	public Map<String, RowIndex> getIndices(List<Table> tables) {
+		Map<String, RowIndex> result = new HashMap<>();
+		for (Table table : tables) {
+			RowIndex index = indices.get(table.getName());
+			if(index == null){
+				return null;
+			}
+			result.put(table.getName(), index);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Adds the row indices of the tables, mapped by the table names. Indices of the same
+	 * tables are replaced.
+	 * @param indices
+	 */
+	public void putIndices(Map<String, RowIndex> indices) {
+		this.indices.putAll(indices);
+		this.isModified = true;
+	}
+
+	/**
+	 * Returns the restart points of a compressed data file, see {@link DataFile#getRestartPoints()}.
+	 * @return
+	 */
+	public Map<Long, Long> getRestartPoints() {
+		return restartPoints;
+	}
+
+	/**
+	 * Sets the restart points of a compressed data file.
+	 * @param restartPoints
+	 */
+	public void setRestartPoints(Map<Long, Long> restartPoints) {
+		this.restartPoints = new TreeMap<>(restartPoints);
+		this.isModified = true;
+	}
+
+	/**
+	 * Loads the cache file if it exists and matches the data file.
+	 * @return true if the cache was loaded
+	 */
+	public boolean load() {
+		if(!exists()){
+			return false;
+		}
+
+		DataInputStream input = null;
+		try{
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(cachePath)));
+			if(input.readInt() != MAGIC || input.readInt() != VERSION){
+				return false;
+			}
+			byte[] cachedSignature = new byte[input.readInt()];
+			input.readFully(cachedSignature);
+			if(!MessageDigest.isEqual(cachedSignature, getSignature())){
+				return false;
+			}
+
+			List<Table> cachedTables = new ArrayList<>();
+			int tableCount = input.readInt();
+			for(int i = 0; i < tableCount; i++){
+				cachedTables.add(readTable(input));
+			}
+
+			Map<String, RowIndex> cachedIndices = new HashMap<>();
+			int indexCount = input.readInt();
+			for(int i = 0; i < indexCount; i++){
+				String tableName = input.readUTF();
+				cachedIndices.put(tableName, readIndex(input));
+			}
+
+			Map<Long, Long> cachedRestartPoints = new TreeMap<>();
+			int restartPointCount = input.readInt();
+			for(int i = 0; i < restartPointCount; i++){
+				cachedRestartPoints.put(input.readLong(), input.readLong());
+			}
+
+			tables = cachedTables;
+			indices = cachedIndices;
+			restartPoints = cachedRestartPoints;
+			isLoaded = true;
+			isModified = false;
+		} catch(IOException e){
+			// A broken cache is treated as stale
+			return false;
+		} finally{
+			try{if(input != null) input.close();} catch(Exception e){}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes the cache file. The content is written to a temporary file first, which replaces
+	 * the cache file once complete, so an interrupted write does not leave a broken cache.
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		Path temporary = Paths.get(cachePath + ".tmp");
+		DataOutputStream output = null;
+		try{
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary.toFile())));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(getSignature().length);
+			output.write(getSignature());
+
+			List<Table> cachedTables = tables != null ? tables : new ArrayList<>();
+			output.writeInt(cachedTables.size());
+			for (Table table : cachedTables) {
+				writeTable(output, table);
+			}
+
+			output.writeInt(indices.size());
+			for (Map.Entry<String, RowIndex> entry : indices.entrySet()) {
+				output.writeUTF(entry.getKey());
+				writeIndex(output, entry.getValue());
+			}
+
+			output.writeInt(restartPoints.size());
+			for (Map.Entry<Long, Long> entry : restartPoints.entrySet()) {
+				output.writeLong(entry.getKey());
+				output.writeLong(entry.getValue());
+			}
+		} finally{
+			try{if(output != null) output.close();} catch(Exception e){}
+		}
+
+		Files.move(temporary, Paths.get(cachePath), StandardCopyOption.REPLACE_EXISTING);
+		isModified = false;
+	}
+
+	/**
+	 * Returns the signature of the data file, built from its size, its modification time and
+	 * the digest of the sampled blocks.
+	 * @return
+	 * @throws IOException
+	 */
+	private byte[] getSignature() throws IOException {
+		if(signature == null){
+			MessageDigest digest;
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch(NoSuchAlgorithmException e){
+				throw new IOException(e);
+			}
+
+			RandomAccessFile file = null;
+			try{
+				file = new RandomAccessFile(path, "r");
+				long size = file.length();
+				long modified = Files.getLastModifiedTime(Paths.get(path)).toMillis();
+				digest.update(longToBytes(size));
+				digest.update(longToBytes(modified));
+
+				byte[] block = new byte[SAMPLE_SIZE];
+				long step = Math.max(0, size - SAMPLE_SIZE) / (SAMPLE_COUNT - 1);
+				for(int i = 0; i < SAMPLE_COUNT; i++){
+					file.seek(Math.min(step * i, Math.max(0, size - SAMPLE_SIZE)));
+					int read = file.read(block);
+					if(read > 0){
+						digest.update(block, 0, read);
+					}
+				}
+			} finally{
+				try{if(file != null) file.close();} catch(Exception e){}
+			}
+			signature = digest.digest();
+		}
+
+		return signature;
+	}
+
+	private static byte[] longToBytes(long value) {
+		byte[] bytes = new byte[8];
+		for(int i = 0; i < 8; i++){
+			bytes[i] = (byte) (value >>> (56 - 8 * i));
+		}
+
+		return bytes;
+	}
+
+	private static void writeTable(DataOutputStream output, Table table) throws IOException {
+		output.writeUTF(table.getName());
+		output.writeInt(table.getColumns().length);
+		for (Column column : table.getColumns()) {
+			output.writeUTF(column.getName());
+			output.writeInt(column.getType() != null ? column.getType().ordinal() : -1);
+			output.writeBoolean(column.isPrimaryKey());
+			output.writeBoolean(column.isUnique());
+			output.writeBoolean(column.isNullable());
+		}
+	}
+
+	private static Table readTable(DataInputStream input) throws IOException {
+		String name = input.readUTF();
+		Column[] columns = new Column[input.readInt()];
+		for(int i = 0; i < columns.length; i++){
+			String columnName = input.readUTF();
+			int type = input.readInt();
+			columns[i] = new Column(columnName, type != -1 ? ColumnType.values()[type] : null,
+				input.readBoolean(), input.readBoolean(), input.readBoolean());
+		}
+
+		return new Table(name, columns);
+	}
+
+	/**
+	 * Writes the entries of the index in order of their slots, so the slots are kept when read.
+	 * @param output
+	 * @param index
+	 * @throws IOException
+	 */
+	private static void writeIndex(DataOutputStream output, RowIndex index) throws IOException {
+		output.writeInt(index.size());
+		for(int slot = 0; slot < index.size(); slot++){
+			IndexKey key = index.getKeys().getKey(slot);
+			if(key.isNumeric()){
+				output.writeByte(0);
+				output.writeLong(key.getNumber());
+			} else {
+				output.writeByte(1);
+				output.writeInt(key.getBytes().length);
+				output.write(key.getBytes());
+			}
+			output.writeLong(index.getOffset(slot));
+			output.writeInt(index.getLength(slot));
+			output.writeLong(index.getFingerprint(slot));
+		}
+	}
+
+	private static RowIndex readIndex(DataInputStream input) throws IOException {
+		RowIndex index = new RowIndex();
+		int size = input.readInt();
+		for(int slot = 0; slot < size; slot++){
+			IndexKey key;
+			if(input.readByte() == 0){
+				key = IndexKey.of(input.readLong());
+			} else {
+				byte[] bytes = new byte[input.readInt()];
+				input.readFully(bytes);
+				key = IndexKey.of(bytes);
+			}
+			index.add(key, input.readLong(), input.readInt(), input.readLong());
+		}
+
+		return index;
+	}
+
+}
\ No newline at end of file
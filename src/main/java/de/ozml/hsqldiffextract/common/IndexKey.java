@@ -0,0 +1,158 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.Arrays;
+
+/**
+ * Represents the compact primary key of a row. Single numeric keys are held as primitive
+ * {@code long}, all other keys as an order preserving byte encoding as produced by a
+ * {@link KeyEncoder}. Comparing, hashing and sorting keys does not allocate memory.
+ * Numeric keys are ordered before byte encoded keys.
+ */
+public final class IndexKey implements Comparable<IndexKey> {
+
+	private final long number;
+	private final byte[] bytes;
+
+	private IndexKey(long number, byte[] bytes) {
+		this.number = number;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Creates a numeric key.
+	 * @param number
+	 * @return
+	 */
+	public static IndexKey of(long number) {
+		return new IndexKey(number, null);
+	}
+
+	/**
+	 * Creates a byte encoded key. The array must not be modified afterwards.
+	 * @param bytes
+	 * @return
+	 */
+	public static IndexKey of(byte[] bytes) {
+		return new IndexKey(0, bytes);
+	}
+
+	/**
+	 * Creates a key from its string representation as returned by {@link #toString()}.
+	 * @param value
+	 * @return
+	 * @throws NumberFormatException if the value is no key representation
+	 */
+	public static IndexKey parse(String value) {
+		if(!value.startsWith("0x")){
+			return of(Long.parseLong(value));
+		}
+		if(value.length() % 2 != 0){
+			throw new NumberFormatException(value);
+		}
+
+		byte[] bytes = new byte[(value.length() - 2) / 2];
+		for(int i = 0; i < bytes.length; i++){
+			int high = Character.digit(value.charAt(2 + 2 * i), 16);
+			int low = Character.digit(value.charAt(3 + 2 * i), 16);
+			if(high == -1 || low == -1){
+				throw new NumberFormatException(value);
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+
+		return of(bytes);
+	}
+
+	/**
+	 * Checks whether the key is numeric.
+	 * @return
+	 */
+	public boolean isNumeric() {
+		return bytes == null;
+	}
+
+	/**
+	 * Returns the value of a numeric key.
+	 * @return
+	 */
+	public long getNumber() {
+		return number;
+	}
+
+	/**
+	 * Returns the encoding of a byte encoded key. The array must not be modified.
+	 * @return
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public int compareTo(IndexKey other) {
+		if(bytes == null || other.bytes == null){
+			if(bytes == null && other.bytes == null){
+				return Long.compare(number, other.number);
+			}
+			return bytes == null ? -1 : 1;
+		}
+
+		return compareBytes(bytes, other.bytes);
+	}
+
+	/**
+	 * Compares the two arrays lexicographically, treating the bytes as unsigned.
+	 * @param b1
+	 * @param b2
+	 * @return
+	 */
+	static int compareBytes(byte[] b1, byte[] b2) {
+		int length = Math.min(b1.length, b2.length);
+		for(int i = 0; i < length; i++){
+			int c = (b1[i] & 0xff) - (b2[i] & 0xff);
+			if(c != 0){
+				return c;
+			}
+		}
+
+		return b1.length - b2.length;
+	}
+
+	@Override
+	public int hashCode() {
+		if(bytes == null){
+			long h = number * 0x9e3779b97f4a7c15L;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		return Arrays.hashCode(bytes);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		IndexKey other = (IndexKey) obj;
+		if (bytes == null || other.bytes == null)
+			return bytes == other.bytes && number == other.number;
+		return Arrays.equals(bytes, other.bytes);
+	}
+
+	@Override
+	public String toString() {
+		if(bytes == null){
+			return Long.toString(number);
+		}
+
+		StringBuilder builder = new StringBuilder("0x");
+		for (byte b : bytes) {
+			builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+
+		return builder.toString();
+	}
+
+}
\ No newline at end of file
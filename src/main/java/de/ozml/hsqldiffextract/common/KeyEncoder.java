@@ -0,0 +1,121 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Builds {@link IndexKey} instances from the primary key values of the rows of a table. The
+ * encoding is chosen once from the types of the primary key columns. A single numeric primary key
+ * column results in numeric keys. Otherwise each key value is appended to an order preserving byte
+ * encoding: a tag byte ({@code NULL} before numbers before texts) followed by the sign flipped big
+ * endian number or by the text bytes, in which zero bytes are escaped and which are terminated by
+ * two zero bytes. Character literals are unquoted first, so keys are ordered by their content.
+ */
+public class KeyEncoder {
+
+	private static final int TAG_NULL = 0x00;
+	private static final int TAG_NUMBER = 0x01;
+	private static final int TAG_TEXT = 0x02;
+
+	private int[] pkIndices;
+	private ColumnType[] pkTypes;
+	private boolean isNumeric;
+
+	public KeyEncoder(Table table) {
+		this.pkIndices = table.getPrimaryKeyIndices();
+		this.pkTypes = new ColumnType[pkIndices.length];
+		Column[] columns = table.getColumns();
+		for(int i = 0; i < pkIndices.length; i++){
+			pkTypes[i] = columns[pkIndices[i]].getType();
+		}
+		this.isNumeric = pkIndices.length == 1 && pkTypes[0] == ColumnType.Numeric;
+	}
+
+	/**
+	 * Returns the key of the row.
+	 * @param row
+	 * @return
+	 */
+	public IndexKey encode(Row row) {
+		String[] values = new String[pkIndices.length];
+		for(int i = 0; i < pkIndices.length; i++){
+			values[i] = row.getValue(pkIndices[i]);
+		}
+
+		return encode(values);
+	}
+
+	/**
+	 * Returns the key for the primary key values, given in the order of the table definition.
+	 * @param values
+	 * @return
+	 */
+	public IndexKey encode(String[] values) {
+		if(isNumeric){
+			Long number = parseNumber(values[0]);
+			if(number != null){
+				return IndexKey.of(number);
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+		for(int i = 0; i < values.length; i++){
+			String value = values[i].trim();
+			Long number = pkTypes[i] == ColumnType.Numeric ? parseNumber(value) : null;
+			if(value.equals("NULL")){
+				out.write(TAG_NULL);
+			} else if(number != null){
+				out.write(TAG_NUMBER);
+				long bits = number ^ Long.MIN_VALUE;
+				for(int shift = 56; shift >= 0; shift -= 8){
+					out.write((int) (bits >>> shift));
+				}
+			} else {
+				out.write(TAG_TEXT);
+				for (byte b : unquote(value).getBytes(StandardCharsets.UTF_8)) {
+					out.write(b);
+					if(b == 0){
+						out.write(0xff);
+					}
+				}
+				out.write(0);
+				out.write(0);
+			}
+		}
+
+		return IndexKey.of(out.toByteArray());
+	}
+
+	/**
+	 * Parses the numeric literal or returns {@code null} if it is no integer value.
+	 * @param value
+	 * @return
+	 */
+	private static Long parseNumber(String value) {
+		try {
+			return Long.parseLong(value.trim());
+		} catch(NumberFormatException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Removes the quotes of a character literal and resolves doubled quotes. Other
+	 * values are returned unchanged.
+	 * @param value
+	 * @return
+	 */
+	private static String unquote(String value) {
+		if(value.length() >= 2 && value.charAt(0) == '\'' && value.charAt(value.length() - 1) == '\''){
+			return value.substring(1, value.length() - 1).replace("''", "'");
+		}
+
+		return value;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,286 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.Arrays;
+
+/**
+ * Assigns consecutive slots to the keys of a table in order of their first occurrence. The
+ * slots can be used as positions within parallel arrays holding the row data. Numeric keys are
+ * held in a {@code long} array, byte encoded keys in an array of byte arrays, so no objects are
+ * kept per key. As long as the keys are added in ascending order, which is the usual case for
+ * hsqldb data files, the slots are looked up with a binary search. Hash maps from the keys to
+ * their slots ({@link LongIntHashMap}, {@link BytesIntHashMap}) are only built once a key is
+ * added out of order.
+ */
+public class KeyIndex {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private LongIntHashMap numericSlots;
+	private BytesIntHashMap byteSlots;
+	private long[] numbers;
+	private byte[][] bytes;
+	private int size;
+	private boolean isOrdered;
+
+	public KeyIndex() {
+		this.numbers = new long[INITIAL_CAPACITY];
+		this.isOrdered = true;
+	}
+
+	/**
+	 * Returns the slot of the key. If the key is not yet contained, the next free slot
+	 * is assigned to it.
+	 * @param key
+	 * @return
+	 */
+	public int add(IndexKey key) {
+		// A key greater than the last one can not be contained yet
+		boolean isAppended = isOrdered && (size == 0 || compareToSlot(key, size - 1) > 0);
+		if(!isAppended){
+			int slot = getSlot(key);
+			if(slot != -1){
+				return slot;
+			}
+		}
+
+		int slot = size++;
+		if(slot == numbers.length){
+			numbers = Arrays.copyOf(numbers, Math.max(slot * 2, INITIAL_CAPACITY));
+			if(bytes != null){
+				bytes = Arrays.copyOf(bytes, numbers.length);
+			}
+		}
+
+		if(key.isNumeric()){
+			numbers[slot] = key.getNumber();
+		} else {
+			if(bytes == null){
+				bytes = new byte[numbers.length][];
+			}
+			bytes[slot] = key.getBytes();
+		}
+
+		if(isAppended){
+			return slot;
+		}
+
+		if(isOrdered){
+			isOrdered = false;
+			buildSlotMaps();
+		} else {
+			putSlot(slot);
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of the key or -1 if not contained.
+	 * @param key
+	 * @return
+	 */
+	public int getSlot(IndexKey key) {
+		if(isOrdered){
+			int low = 0;
+			int high = size;
+			while(low < high){
+				int middle = (low + high) >>> 1;
+				int result = compareToSlot(key, middle);
+				if(result == 0){
+					return middle;
+				}
+				if(result > 0){
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+
+			return -1;
+		}
+
+		if(key.isNumeric()){
+			return numericSlots != null ? numericSlots.get(key.getNumber()) : -1;
+		}
+
+		return byteSlots != null ? byteSlots.get(key.getBytes()) : -1;
+	}
+
+	/**
+	 * Returns the key in the specified slot.
+	 * @param slot
+	 * @return
+	 */
+	public IndexKey getKey(int slot) {
+		if(bytes != null && bytes[slot] != null){
+			return IndexKey.of(bytes[slot]);
+		}
+
+		return IndexKey.of(numbers[slot]);
+	}
+
+	/**
+	 * Returns the number of keys.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the keys were added in ascending order.
+	 * @return
+	 */
+	public boolean isOrdered() {
+		return isOrdered;
+	}
+
+	/**
+	 * Shrinks the key arrays to the number of keys.
+	 */
+	public void trim() {
+		numbers = Arrays.copyOf(numbers, size);
+		if(bytes != null){
+			bytes = Arrays.copyOf(bytes, size);
+		}
+	}
+
+	/**
+	 * Returns the slots sorted by their keys. If the keys were added in ascending order,
+	 * no sorting is needed.
+	 * @return
+	 */
+	public int[] sortSlots() {
+		int[] slots = new int[size];
+		for(int i = 0; i < size; i++){
+			slots[i] = i;
+		}
+
+		if(!isOrdered){
+			mergeSort(slots, new int[size], 0, size);
+		}
+
+		return slots;
+	}
+
+	/**
+	 * Returns the position of the key within the sorted slots as returned by {@link #sortSlots()}.
+	 * If the key is not contained, the position of the next greater key is returned.
+	 * @param sortedSlots
+	 * @param key
+	 * @return
+	 */
+	public int indexOf(int[] sortedSlots, IndexKey key) {
+		int low = 0;
+		int high = sortedSlots.length;
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			if(compareToSlot(key, sortedSlots[middle]) > 0){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Builds the maps from the keys to their slots for all keys added so far.
+	 */
+	private void buildSlotMaps() {
+		for(int slot = 0; slot < size; slot++){
+			putSlot(slot);
+		}
+	}
+
+	/**
+	 * Adds the key in the slot to the map for its key type.
+	 * @param slot
+	 */
+	private void putSlot(int slot) {
+		if(bytes != null && bytes[slot] != null){
+			if(byteSlots == null){
+				byteSlots = new BytesIntHashMap();
+			}
+			byteSlots.put(bytes[slot], slot);
+		} else {
+			if(numericSlots == null){
+				numericSlots = new LongIntHashMap();
+			}
+			numericSlots.put(numbers[slot], slot);
+		}
+	}
+
+	/**
+	 * Sorts the range of the slot array by the keys of the slots.
+	 * @param slots
+	 * @param buffer
+	 * @param from
+	 * @param to
+	 */
+	private void mergeSort(int[] slots, int[] buffer, int from, int to) {
+		if(to - from < 2){
+			return;
+		}
+
+		int middle = (from + to) >>> 1;
+		mergeSort(slots, buffer, from, middle);
+		mergeSort(slots, buffer, middle, to);
+		if(compareSlots(slots[middle - 1], slots[middle]) <= 0){
+			return;
+		}
+
+		System.arraycopy(slots, from, buffer, from, to - from);
+		int i = from;
+		int j = middle;
+		int k = from;
+		while(i < middle && j < to){
+			slots[k++] = compareSlots(buffer[i], buffer[j]) <= 0 ? buffer[i++] : buffer[j++];
+		}
+		while(i < middle){
+			slots[k++] = buffer[i++];
+		}
+		while(j < to){
+			slots[k++] = buffer[j++];
+		}
+	}
+
+	/**
+	 * Compares the keys in the two slots.
+	 * @param slot1
+	 * @param slot2
+	 * @return
+	 */
+	public int compareSlots(int slot1, int slot2) {
+		byte[] b1 = bytes != null ? bytes[slot1] : null;
+		byte[] b2 = bytes != null ? bytes[slot2] : null;
+		if(b1 == null || b2 == null){
+			if(b1 == null && b2 == null){
+				return Long.compare(numbers[slot1], numbers[slot2]);
+			}
+			return b1 == null ? -1 : 1;
+		}
+
+		return IndexKey.compareBytes(b1, b2);
+	}
+
+	/**
+	 * Compares the key with the key in the slot.
+	 * @param key
+	 * @param slot
+	 * @return
+	 */
+	public int compareToSlot(IndexKey key, int slot) {
+		byte[] b = bytes != null ? bytes[slot] : null;
+		if(key.isNumeric() || b == null){
+			if(key.isNumeric() && b == null){
+				return Long.compare(key.getNumber(), numbers[slot]);
+			}
+			return key.isNumeric() ? -1 : 1;
+		}
+
+		return IndexKey.compareBytes(key.getBytes(), b);
+	}
+
+}
\ No newline at end of file
@@ -1,38 +1,52 @@
 package de.ozml.hsqldiffextract.common;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.BiConsumer;
 
 import de.ozml.hsqldiffextract.entity.Row;
 import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.parser.ParseMode;
 import de.ozml.hsqldiffextract.parser.RowParser;
 
 /**
- * Represents a {@link RowSource} which holds just the line numbers of all row
- * entities of a table. The actual row data is not loaded until needed.
+ * Represents a {@link RowSource} which holds just the locations of all row entities of a
+ * table. The actual row data is not loaded until needed. Each row is read from the data file
+ * with a positional read at its byte offset, so random access does not require scanning the file.
+ * If a row cannot be read, an {@link UncheckedIOException} is thrown, as a missing row would be
+ * taken as deleted or inserted one.
  */
 public class LazyRowRource implements RowSource {
 
 	private Table table;
-	private String dataFilePath;
-	private Map<String, Integer> lineNumberMap;
+	private DataFile dataFile;
+	private RowIndex index;
+	private ParseMode parseMode;
+	private int[] sortedSlots;
 
-	public LazyRowRource(Table table, String dataFilePath, Map<String, Integer> lineNumberMap) {
+	public LazyRowRource(Table table, DataFile dataFile, RowIndex index) {
+		this(table, dataFile, index, ParseMode.Full);
+	}
+
+	/**
+	 * Creates a source whose rows are tokenized as determined by the parse mode when read.
+	 * @param table
+	 * @param dataFile
+	 * @param index
+	 * @param parseMode
+	 */
+	public LazyRowRource(Table table, DataFile dataFile, RowIndex index, ParseMode parseMode) {
 		this.table = table;
-		this.dataFilePath = dataFilePath;
-		this.lineNumberMap = lineNumberMap;
+		this.dataFile = dataFile;
+		this.index = index;
+		this.parseMode = parseMode;
+		index.trim();
+		this.sortedSlots = index.getKeys().sortSlots();
 	}
 
 	@Override
@@ -42,24 +56,26 @@ public class LazyRowRource implements RowSource {
 
 	@Override
 	public int count() {
-		return lineNumberMap.size();
+		return index.size();
 	}
 
 	@Override
-	public boolean containsRow(String key) {
-		return lineNumberMap.containsKey(key);
+	public boolean containsRow(IndexKey key) {
+		return index.getSlot(key) != -1;
 	}
 
 	@Override
-	public Row getRow(String key) {
-		Row row = null;
-		Integer lineNumber = lineNumberMap.get(key);
-		if(lineNumber != null){
-			String line = readLineFromDataFile(lineNumber);
-			row = RowParser.extractRow(table, line);
+	public Row getRow(IndexKey key) {
+		int slot = index.getSlot(key);
+		if(slot == -1){
+			return null;
 		}
 
-		return row;
+		try {
+			return readRow(slot, null);
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	@Override
@@ -70,128 +86,185 @@ public class LazyRowRource implements RowSource {
 	@Override
 	public List<Row> getPart(int startIndex, int number) {
 		List<Row> list = new ArrayList<>();
-		int endIndex = startIndex + number <= count() ? startIndex + number : count();
-		List<Entry<String, Integer>> entryList = sortedEntryList().subList(startIndex, endIndex);
-		collectRows(entryList, row -> list.add(row));
-		list.sort((o1, o2) -> RowUtil.compareIndexKeys(o1, o2));
+		collectPart(startIndex, number, (key, row) -> list.add(row));
 
 		return list;
 	}
 
 	@Override
-	public Map<String, Row> getPartMap(int startIndex, int number) {
-		Map<String, Row> map = new HashMap<>();
-		int endIndex = startIndex + number <= count() ? startIndex + number : count();
-		List<Entry<String, Integer>> entryList = sortedEntryList().subList(startIndex, endIndex);
-		collectRows(entryList, row -> map.put(RowUtil.genIndexKey(row.getPrimaryKey()), row));
+	public Map<IndexKey, Row> getPartMap(int startIndex, int number) {
+		Map<IndexKey, Row> map = new HashMap<>();
+		collectPart(startIndex, number, (key, row) -> map.put(key, row));
 
 		return map;
 	}
 
 	@Override
-	public List<Row> getRows(Collection<String> keys) {
+	public List<Row> getRows(Collection<IndexKey> keys) {
+		List<IndexKey> keyList = RowUtil.sortIndexKeyList(keys);
 		List<Row> list = new ArrayList<>();
-		List<Entry<String, Integer>> entryList = filteredEntryList(keys);
-		collectRows(entryList, row -> list.add(row));
-		list.sort((o1, o2) -> RowUtil.compareIndexKeys(o1, o2));
+		collectRows(keyList, (key, row) -> list.add(row));
 
 		return list;
 	}
 
+	@Override
+	public Map<IndexKey, Row> getRowsMap(Collection<IndexKey> keys) {
+		Map<IndexKey, Row> map = new HashMap<>();
+		collectRows(keys, (key, row) -> map.put(key, row));
+
+		return map;
+	}
+
+	@Override
+	public boolean isOrdered() {
+		return index.getKeys().isOrdered();
+	}
+
+	@Override
+	public boolean hasFingerprints() {
+		return true;
+	}
+
+	@Override
+	public IndexKey getKeyAt(int position) {
+		return index.getKeys().getKey(sortedSlots[position]);
+	}
+
+	@Override
+	public int indexOf(IndexKey key) {
+		return index.getKeys().indexOf(sortedSlots, key);
+	}
+
 	/**
-	 * Returns the rows with the specified keys as a map.
-	 * @param key
-	 * @return
+	 * Opens a cursor over all rows. The rows are read through a read ahead window, so
+	 * if the rows are ordered within the sql file, the file is effectively streamed.
 	 */
-	public Map<String, Row> getRowsMap(Collection<String> keys) {
-		Map<String, Row> map = new HashMap<>();
-		List<Entry<String, Integer>> entryList = filteredEntryList(keys);
-		collectRows(entryList, row -> map.put(RowUtil.genIndexKey(row.getPrimaryKey()), row));
+	@Override
+	public RowCursor openCursor() {
+		return new KeyCursor(0, sortedSlots.length);
+	}
 
-		return map;
+	@Override
+	public RowCursor openCursor(IndexKey fromKey, IndexKey toKey) {
+		int startIndex = fromKey != null ? indexOf(fromKey) : 0;
+		int endIndex = toKey != null ? indexOf(toKey) : sortedSlots.length;
+
+		return new KeyCursor(startIndex, Math.max(startIndex, endIndex));
 	}
 
 	/**
-	 * Reads the rows from line numbers and passes them to the handler. Each entry within the
-	 * specified list is composed an row index key string and the line number in the sql source
-	 * file.
-	 * @param entryList
+	 * Reads the rows with the specified keys and passes them to the handler in the
+	 * order of the keys. Keys which are not contained are skipped.
+	 * @param keys
 	 * @param handler
 	 */
-	private void collectRows(List<Entry<String, Integer>> entryList, Consumer<Row> handler){
-		BufferedReader reader = null;
+	private void collectRows(Collection<IndexKey> keys, BiConsumer<IndexKey, Row> handler){
+		DataFile.Window window = dataFile.openWindow();
 		try {
-			reader = new BufferedReader(new FileReader(dataFilePath));
-			entryList.sort((o1, o2) -> o1.getValue().compareTo(o2.getValue()));
-			int currentLine = 0;
-			for (int i = 0; i < entryList.size(); i++) {
-				int lineNumber = entryList.get(i).getValue();
-				int step = lineNumber - currentLine;
-				if(step > 1){
-					skipLines(reader, step);
-				}
-				currentLine += step;
-
-				String line = reader.readLine();
-				Row row =  RowParser.extractRow(table, line);
-				if (row != null) {
-					handler.accept(row);
+			for (IndexKey key : keys) {
+				int slot = index.getSlot(key);
+				if(slot != -1){
+					handler.accept(key, readRow(slot, window));
 				}
 			}
 		} catch(IOException e){
-			e.printStackTrace();
+			throw new UncheckedIOException(e);
 		} finally{
-			try{if(reader != null) reader.close();} catch(Exception e){}
+			window.close();
 		}
 	}
 
 	/**
-	 * Returns a sorted line list.
-	 * @return
+	 * Reads the rows of the specified part of the sorted key order and passes them to the handler.
+	 * @param startIndex
+	 * @param number
+	 * @param handler
 	 */
-	private List<Entry<String, Integer>> sortedEntryList() {
-		return lineNumberMap.entrySet()
-			.stream()
-			.sorted((o1, o2) -> RowUtil.compareIndexKeys(o1.getKey(), o2.getKey()))
-			.collect(Collectors.toCollection(ArrayList::new));
+	private void collectPart(int startIndex, int number, BiConsumer<IndexKey, Row> handler){
+		DataFile.Window window = dataFile.openWindow();
+		try {
+			for(int i = startIndex; i < startIndex + number && i < sortedSlots.length; i++){
+				handler.accept(index.getKeys().getKey(sortedSlots[i]), readRow(sortedSlots[i], window));
+			}
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		} finally{
+			window.close();
+		}
 	}
 
 	/**
-	 * Returns a list of entries corresponding to the specified keys.
-	 * @param keys
+	 * Reads the row in the specified slot from the data file, through the window if given.
+	 * @param slot
+	 * @param window
 	 * @return
+	 * @throws IOException if the row cannot be read or the line read is no row of the table
 	 */
-	private List<Entry<String, Integer>> filteredEntryList(Collection<String> keys) {
-		List<String> keyList = new ArrayList<>(keys);
-		return lineNumberMap.entrySet()
-			.stream()
-			.filter(entry -> keyList.contains(entry.getKey()))
-			.collect(Collectors.toCollection(ArrayList::new));
-	}
+	private Row readRow(int slot, DataFile.Window window) throws IOException {
+		long offset = index.getOffset(slot);
+		int length = index.getLength(slot);
+		String line = window != null ? window.readLine(offset, length) : dataFile.readLine(offset, length);
 
-	/**
-	 * Reads the line with the line number from the sql data file.
-	 * @param lineNumber
-	 * @return
-	 */
-	private String readLineFromDataFile(int lineNumber) {
-		try (Stream<String> fileStream = Files.lines(Paths.get(dataFilePath))) {
-			return fileStream.skip(lineNumber).findFirst().get();
-		} catch (Exception e) {}
+		Row row = RowParser.extractRow(table, line, parseMode);
+		if(row == null){
+			throw new IOException("No row of table " + table.getName() + " at offset " + offset);
+		}
 
-		return null;
+		return row;
 	}
 
 	/**
-	 * Skips the specified line number from the given reader.
-	 * @param reader
-	 * @param number
-	 * @throws IOException
+	 * Cursor which visits the rows of a part of the sorted key order. A row is only read
+	 * from the data file when requested.
 	 */
-	private void skipLines(BufferedReader reader, int number) throws IOException {
-		while(number-- > 0){
-			reader.readLine();
+	private class KeyCursor implements RowCursor {
+
+		private DataFile.Window window = dataFile.openWindow();
+		private int position;
+		private int endIndex;
+		private Row row;
+
+		public KeyCursor(int startIndex, int endIndex) {
+			this.position = startIndex - 1;
+			this.endIndex = endIndex;
+		}
+
+		@Override
+		public boolean next() {
+			row = null;
+			return ++position < endIndex;
+		}
+
+		@Override
+		public IndexKey getKey() {
+			return index.getKeys().getKey(sortedSlots[position]);
+		}
+
+		@Override
+		public Row getRow() {
+			if(row == null){
+				try {
+					row = readRow(sortedSlots[position], window);
+				} catch(IOException e){
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			return row;
+		}
+
+		@Override
+		public long getFingerprint() {
+			return index.getFingerprint(sortedSlots[position]);
+		}
+
+		@Override
+		public void close() {
+			row = null;
+			window.close();
 		}
+
 	}
 
 }
\ No newline at end of file
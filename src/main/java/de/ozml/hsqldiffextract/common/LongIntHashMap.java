@@ -0,0 +1,101 @@
+package de.ozml.hsqldiffextract.common;
+
+/**
+ * Represents a hash map from primitive {@code long} keys to non negative {@code int} values.
+ * The entries are stored with open addressing and linear probing within two plain arrays, so
+ * no objects are created per entry.
+ */
+public class LongIntHashMap {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	public LongIntHashMap() {
+		this.keys = new long[INITIAL_CAPACITY];
+		this.values = new int[INITIAL_CAPACITY];
+		this.mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Returns the value for the key or -1 if the key is not contained.
+	 * @param key
+	 * @return
+	 */
+	public int get(long key) {
+		for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+			// Values are stored incremented by one, zero marks a free position
+			if(values[i] == 0){
+				return -1;
+			}
+			if(keys[i] == key){
+				return values[i] - 1;
+			}
+		}
+	}
+
+	/**
+	 * Associates the non negative value with the key.
+	 * @param key
+	 * @param value
+	 */
+	public void put(long key, int value) {
+		for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+			if(values[i] == 0){
+				keys[i] = key;
+				values[i] = value + 1;
+				if(++size > keys.length * 3 / 4){
+					grow();
+				}
+				return;
+			}
+			if(keys[i] == key){
+				values[i] = value + 1;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Doubles the capacity and reinserts all entries.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		mask = keys.length - 1;
+		for(int j = 0; j < oldKeys.length; j++){
+			if(oldValues[j] != 0){
+				int i = hash(oldKeys[j]) & mask;
+				while(values[i] != 0){
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Spreads the key bits, since consecutive keys are common.
+	 * @param key
+	 * @return
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the written content in gzip format using several threads. The content is collected
+ * in blocks, each block is compressed into a gzip member of its own at the same time as the
+ * following blocks are collected, and the members are written in order. The output is a valid
+ * gzip file of several members, which can also be read by {@link GzipMemberInputStream}. The number
+ * of blocks in compression is bounded, so the memory usage does not grow with the content.
+ * <p>
+ * A flush writes all pending content as members, so the output then ends at a member boundary and
+ * can be cut to its length and continued later. Each flush ends the current member, so frequent
+ * flushes result in small members, see {@link #getUnflushedLength()}.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	public static final int BLOCK_SIZE = 1 << 20;
+
+	private OutputStream out;
+	private ExecutorService executor;
+	private boolean isExecutorOwned;
+	private int maxPending;
+	private Deque<Future<byte[]>> pending = new ArrayDeque<>();
+	private byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength;
+	private long unflushedLength;
+
+	/**
+	 * Creates a stream which writes to the underlying stream and compresses with the specified
+	 * number of threads. The underlying stream is closed with this stream.
+	 * @param out
+	 * @param threadCount
+	 */
+	public ParallelGzipOutputStream(OutputStream out, int threadCount) {
+		this(out, Executors.newFixedThreadPool(threadCount), threadCount * 2);
+		this.isExecutorOwned = true;
+	}
+
+	/**
+	 * Creates a stream which writes to the underlying stream and compresses on the specified
+	 * executor, which may be shared by several streams and is not shut down with this stream.
+	 * The underlying stream is closed with this stream.
+	 * @param out
+	 * @param executor
+	 * @param maxPending maximum number of blocks in compression
+	 */
+	public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int maxPending) {
+		this.out = out;
+		this.executor = executor;
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * Returns the number of bytes written since the last flush. A flush below {@value #BLOCK_SIZE}
+	 * bytes results in a member smaller than a block.
+	 * @return
+	 */
+	public long getUnflushedLength() {
+		return unflushedLength;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if(blockLength == block.length){
+			submitBlock();
+		}
+		block[blockLength++] = (byte) b;
+		unflushedLength++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		unflushedLength += len;
+		while(len > 0){
+			if(blockLength == block.length){
+				submitBlock();
+			}
+			int count = Math.min(len, block.length - blockLength);
+			System.arraycopy(b, off, block, blockLength, count);
+			blockLength += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * Compresses the collected content, waits until all members are written and flushes the
+	 * underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if(blockLength > 0){
+			submitBlock();
+		}
+		while(!pending.isEmpty()){
+			writeMember();
+		}
+		out.flush();
+		unflushedLength = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try{
+			flush();
+		} finally{
+			if(isExecutorOwned){
+				executor.shutdownNow();
+			} else {
+				// Blocks of a failed stream are not compressed any more
+				for (Future<byte[]> member : pending) {
+					member.cancel(false);
+				}
+			}
+			out.close();
+		}
+	}
+
+	/**
+	 * Passes the collected block to the compression and starts a new block. If the maximum
+	 * number of blocks is in compression, the first member is written before.
+	 * @throws IOException
+	 */
+	private void submitBlock() throws IOException {
+		if(pending.size() >= maxPending){
+			writeMember();
+		}
+
+		byte[] content = block;
+		int length = blockLength;
+		pending.add(executor.submit(() -> compress(content, length)));
+		block = new byte[BLOCK_SIZE];
+		blockLength = 0;
+	}
+
+	/**
+	 * Waits for the compression of the first pending block and writes the member.
+	 * @throws IOException
+	 */
+	private void writeMember() throws IOException {
+		try {
+			out.write(pending.poll().get());
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch(ExecutionException e){
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Compresses the content into a single gzip member.
+	 * @param content
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	private static byte[] compress(byte[] content, int length) throws IOException {
+		ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + 64);
+		try(GZIPOutputStream gzip = new GZIPOutputStream(member, 8192)){
+			gzip.write(content, 0, length);
+		}
+
+		return member.toByteArray();
+	}
+
+}
\ No newline at end of file
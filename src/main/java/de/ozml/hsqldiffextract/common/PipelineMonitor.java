@@ -0,0 +1,121 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates the {@link StageQueue} instances connecting the stages of a pipeline and collects their
+ * occupancy. Queues created with the same name share their statistics, so the queues of stages
+ * running several times at once are reported together. A queue which is mostly full points to a
+ * slow consumer, a queue which is mostly empty to a slow producer.
+ */
+public class PipelineMonitor {
+
+	private Map<String, Statistics> statistics = new LinkedHashMap<>();
+
+	/**
+	 * Creates a queue with the specified name and capacity.
+	 * @param name
+	 * @param capacity
+	 * @return
+	 */
+	public synchronized <T> StageQueue<T> createQueue(String name, int capacity) {
+		Statistics stats = statistics.computeIfAbsent(name, key -> new Statistics(name, capacity));
+		return new StageQueue<>(capacity, stats);
+	}
+
+	/**
+	 * Returns the statistics of all queues in order of their creation.
+	 * @return
+	 */
+	public synchronized List<Statistics> getStatistics() {
+		return new ArrayList<>(statistics.values());
+	}
+
+	/**
+	 * Represents the occupancy statistics of the queues with a common name.
+	 */
+	public static class Statistics {
+
+		private String name;
+		private int capacity;
+		private AtomicLong puts = new AtomicLong();
+		private AtomicLong occupancySum = new AtomicLong();
+		private AtomicLong fullCount = new AtomicLong();
+		private AtomicLong emptyCount = new AtomicLong();
+
+		private Statistics(String name, int capacity) {
+			this.name = name;
+			this.capacity = capacity;
+		}
+
+		/**
+		 * Records an item put into the queue, which holds the specified number of items afterwards.
+		 * @param size
+		 * @param wasFull whether the producer had to wait
+		 */
+		void recordPut(int size, boolean wasFull) {
+			puts.incrementAndGet();
+			occupancySum.addAndGet(size);
+			if(wasFull){
+				fullCount.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Records an item taken from the queue.
+		 * @param wasEmpty whether the consumer had to wait
+		 */
+		void recordTake(boolean wasEmpty) {
+			if(wasEmpty){
+				emptyCount.incrementAndGet();
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCapacity() {
+			return capacity;
+		}
+
+		/**
+		 * Returns the number of items passed through the queues.
+		 * @return
+		 */
+		public long getItemCount() {
+			return puts.get();
+		}
+
+		/**
+		 * Returns the average share of the capacity in use, in percent.
+		 * @return
+		 */
+		public int getAverageOccupancy() {
+			long count = puts.get();
+			return count > 0 ? (int) (occupancySum.get() * 100 / (count * capacity)) : 0;
+		}
+
+		/**
+		 * Returns how often a producer had to wait for a full queue.
+		 * @return
+		 */
+		public long getFullCount() {
+			return fullCount.get();
+		}
+
+		/**
+		 * Returns how often a consumer had to wait for an empty queue.
+		 * @return
+		 */
+		public long getEmptyCount() {
+			return emptyCount.get();
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents the row lines of a table held outside of the java heap. The raw bytes of the
+ * lines are copied into direct byte buffers of a fixed chunk size, lines are never split
+ * across chunks. For each key the address and byte length of the line and a fingerprint of
+ * the row content are kept in primitive arrays at the slots assigned by a {@link KeyIndex},
+ * so the heap usage does not depend on the size of the rows.
+ */
+public class RowArena {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int CHUNK_SIZE = 1 << 24;
+
+	private KeyIndex keys;
+	private long[] addresses;
+	private int[] lengths;
+	private long[] fingerprints;
+	private List<ByteBuffer> chunks;
+	private ByteBuffer chunk;
+	private Charset charset;
+
+	public RowArena() {
+		this.keys = new KeyIndex();
+		this.addresses = new long[INITIAL_CAPACITY];
+		this.lengths = new int[INITIAL_CAPACITY];
+		this.fingerprints = new long[INITIAL_CAPACITY];
+		this.chunks = new ArrayList<>();
+		this.charset = Charset.defaultCharset();
+	}
+
+	/**
+	 * Adds the line of the row with the specified key. The line is taken from the buffer
+	 * between its position and its limit. If the key is already contained its line is replaced,
+	 * the space of the former line is not reclaimed.
+	 * @param key
+	 * @param line
+	 * @param fingerprint
+	 */
+	public void add(IndexKey key, ByteBuffer line, long fingerprint) {
+		int length = line.remaining();
+		if(chunk == null || chunk.remaining() < length){
+			chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, length));
+			chunks.add(chunk);
+		}
+		long address = ((long) (chunks.size() - 1) << 32) | chunk.position();
+		chunk.put(line);
+
+		add(key, address, length, fingerprint);
+	}
+
+	/**
+	 * Adds all rows of the other arena in order of their slots, as if they were added after
+	 * the rows of this arena. The chunks of the other arena are taken over without copying
+	 * the lines, so the other arena must not be used afterwards.
+	 * @param other
+	 */
+	public void addAll(RowArena other) {
+		long chunkOffset = (long) chunks.size() << 32;
+		chunks.addAll(other.chunks);
+		if(other.chunk != null){
+			chunk = other.chunk;
+		}
+
+		for(int slot = 0; slot < other.size(); slot++){
+			add(other.keys.getKey(slot), other.addresses[slot] + chunkOffset, other.lengths[slot], other.fingerprints[slot]);
+		}
+	}
+
+	/**
+	 * Stores the location of the line of the row with the specified key.
+	 * @param key
+	 * @param address
+	 * @param length
+	 * @param fingerprint
+	 */
+	private void add(IndexKey key, long address, int length, long fingerprint) {
+		int slot = keys.add(key);
+		if(slot == addresses.length){
+			addresses = Arrays.copyOf(addresses, slot * 2);
+			lengths = Arrays.copyOf(lengths, slot * 2);
+			fingerprints = Arrays.copyOf(fingerprints, slot * 2);
+		}
+		addresses[slot] = address;
+		lengths[slot] = length;
+		fingerprints[slot] = fingerprint;
+	}
+
+	/**
+	 * Returns the index of the keys.
+	 * @return
+	 */
+	public KeyIndex getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * @return
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Returns the slot of the row with the specified key or -1 if not contained.
+	 * @param key
+	 * @return
+	 */
+	public int getSlot(IndexKey key) {
+		return keys.getSlot(key);
+	}
+
+	/**
+	 * Returns the content fingerprint of the row in the specified slot.
+	 * @param slot
+	 * @return
+	 */
+	public long getFingerprint(int slot) {
+		return fingerprints[slot];
+	}
+
+	/**
+	 * Decodes the line of the row in the specified slot. The method can be used concurrently.
+	 * @param slot
+	 * @return
+	 */
+	public String readLine(int slot) {
+		long address = addresses[slot];
+		ByteBuffer view = chunks.get((int) (address >>> 32)).duplicate();
+		view.position((int) address);
+
+		byte[] bytes = new byte[lengths[slot]];
+		view.get(bytes);
+
+		return new String(bytes, charset);
+	}
+
+}
\ No newline at end of file
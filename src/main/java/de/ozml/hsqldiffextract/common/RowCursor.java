@@ -0,0 +1,42 @@
+package de.ozml.hsqldiffextract.common;
+
+import de.ozml.hsqldiffextract.entity.Row;
+
+/**
+ * Represents a forward only cursor over the rows of a {@link RowSource}. The rows are visited
+ * in ascending order of their index keys. A new cursor is positioned before the first row.
+ */
+public interface RowCursor extends AutoCloseable {
+
+	/**
+	 * Moves the cursor to the next row and returns whether one exists.
+	 * @return
+	 */
+	public boolean next();
+
+	/**
+	 * Returns the index key of the current row.
+	 * @return
+	 */
+	public IndexKey getKey();
+
+	/**
+	 * Returns the current row.
+	 * @return
+	 */
+	public Row getRow();
+
+	/**
+	 * Returns the content fingerprint of the current row as described in {@link Row#getFingerprint()}.
+	 * If the source keeps fingerprints, the row is not loaded for it.
+	 * @return
+	 */
+	public long getFingerprint();
+
+	/**
+	 * Releases the resources held by the cursor.
+	 */
+	@Override
+	public void close();
+
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.Arrays;
+
+/**
+ * Represents an index of the row locations of a table within a sql data file. For each key
+ * the byte offset and the byte length of the row line are stored, together with a fingerprint
+ * of the row content. The values are kept in primitive arrays at the slots assigned by a
+ * {@link KeyIndex}, in order of their first occurrence within the file. Offset and length are
+ * packed into a single {@code long}, the lengths of lines which do not fit are kept aside.
+ */
+public class RowIndex {
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int LENGTH_BITS = 24;
+	private static final int LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+
+	private KeyIndex keys;
+	private long[] locations;
+	private long[] fingerprints;
+	private LongIntHashMap longLengths;
+
+	public RowIndex() {
+		this.keys = new KeyIndex();
+		this.locations = new long[INITIAL_CAPACITY];
+		this.fingerprints = new long[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds the location of the row with the specified key. If the key is already contained
+	 * its location is replaced.
+	 * @param key
+	 * @param offset
+	 * @param length
+	 * @param fingerprint
+	 */
+	public void add(IndexKey key, long offset, int length, long fingerprint) {
+		if(offset >>> (Long.SIZE - LENGTH_BITS) != 0){
+			throw new IllegalArgumentException("Row offset out of index range: " + offset);
+		}
+
+		int slot = keys.add(key);
+		if(slot == locations.length){
+			locations = Arrays.copyOf(locations, Math.max(slot * 2, INITIAL_CAPACITY));
+			fingerprints = Arrays.copyOf(fingerprints, locations.length);
+		}
+		if(length >= LENGTH_MASK){
+			if(longLengths == null){
+				longLengths = new LongIntHashMap();
+			}
+			longLengths.put(slot, length);
+		}
+		locations[slot] = offset << LENGTH_BITS | Math.min(length, LENGTH_MASK);
+		fingerprints[slot] = fingerprint;
+	}
+
+	/**
+	 * Adds the locations of all rows of the other index in order of their slots, as if they
+	 * were added after the rows of this index.
+	 * @param other
+	 */
+	public void addAll(RowIndex other) {
+		for(int slot = 0; slot < other.size(); slot++){
+			add(other.keys.getKey(slot), other.getOffset(slot), other.getLength(slot), other.fingerprints[slot]);
+		}
+	}
+
+	/**
+	 * Shrinks the arrays to the number of indexed rows. Should be called once the index is complete.
+	 */
+	public void trim() {
+		keys.trim();
+		locations = Arrays.copyOf(locations, size());
+		fingerprints = Arrays.copyOf(fingerprints, size());
+	}
+
+	/**
+	 * Returns the index of the keys.
+	 * @return
+	 */
+	public KeyIndex getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Returns the number of indexed rows.
+	 * @return
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Returns the slot of the row with the specified key or -1 if not contained.
+	 * @param key
+	 * @return
+	 */
+	public int getSlot(IndexKey key) {
+		return keys.getSlot(key);
+	}
+
+	/**
+	 * Returns the byte offset of the row line in the specified slot.
+	 * @param slot
+	 * @return
+	 */
+	public long getOffset(int slot) {
+		return locations[slot] >>> LENGTH_BITS;
+	}
+
+	/**
+	 * Returns the byte length of the row line in the specified slot.
+	 * @param slot
+	 * @return
+	 */
+	public int getLength(int slot) {
+		int length = (int) (locations[slot] & LENGTH_MASK);
+		return length == LENGTH_MASK ? longLengths.get(slot) : length;
+	}
+
+	/**
+	 * Returns the content fingerprint of the row in the specified slot.
+	 * @param slot
+	 * @return
+	 */
+	public long getFingerprint(int slot) {
+		return fingerprints[slot];
+	}
+
+}
\ No newline at end of file
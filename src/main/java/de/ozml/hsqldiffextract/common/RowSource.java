@@ -9,7 +9,7 @@ import de.ozml.hsqldiffextract.entity.Row;
 /**
  * The class represents a repo of the rows for the contained table and provides multiple
  * methods to get access to them. The key which is refered in the method declarations is 
- * composed of the primary column names, seperated each by a colon.
+ * the {@link IndexKey} built from the primary key values by a {@link KeyEncoder}.
  */
 public interface RowSource {
 
@@ -30,7 +30,7 @@ public interface RowSource {
 	 * @param key
 	 * @return
 	 */
-	public boolean containsRow(String key);
+	public boolean containsRow(IndexKey key);
 
 	/**
 	 * Returns the row with the specified key. The order must correspond
@@ -38,7 +38,7 @@ public interface RowSource {
 	 * @param key
 	 * @return
 	 */
-	public Row getRow(String key);
+	public Row getRow(IndexKey key);
 
 	/**
 	 * Returns all rows sorted by the keys. 
@@ -62,20 +62,65 @@ public interface RowSource {
 	 * @param number
 	 * @return
 	 */
-	public Map<String, Row> getPartMap(int startIndex, int number);
+	public Map<IndexKey, Row> getPartMap(int startIndex, int number);
 
 	/**
 	 * Returns the rows with the specified keys. The result list is sorted by key the values.
 	 * @param key
 	 * @return
 	 */
-	public List<Row> getRows(Collection<String> keys);
+	public List<Row> getRows(Collection<IndexKey> keys);
 
 	/**
 	 * Returns the rows with the specified keys as a map.
 	 * @param key
 	 * @return
 	 */
-	public Map<String, Row> getRowsMap(Collection<String> keys);
+	public Map<IndexKey, Row> getRowsMap(Collection<IndexKey> keys);
+
+	/**
+	 * Checks whether the rows appeared in ascending key order within the sql file. In this
+	 * case the rows can be streamed in file order without sorting.
+	 * @return
+	 */
+	public boolean isOrdered();
+
+	/**
+	 * Checks whether the source keeps the content fingerprints of its rows, so they can be
+	 * compared without loading the rows.
+	 * @return
+	 */
+	public boolean hasFingerprints();
+
+	/**
+	 * Returns the key at the specified position of the sorted key order.
+	 * @param index
+	 * @return
+	 */
+	public IndexKey getKeyAt(int index);
+
+	/**
+	 * Returns the position of the key within the sorted key order. If the key is not
+	 * contained, the position of the next greater key is returned.
+	 * @param key
+	 * @return
+	 */
+	public int indexOf(IndexKey key);
+
+	/**
+	 * Opens a cursor which visits all rows sorted by the keys.
+	 * @return
+	 */
+	public RowCursor openCursor();
+
+	/**
+	 * Opens a cursor which visits the rows whose keys lie within the specified range, sorted by
+	 * the keys. The start key is inclusive, the end key exclusive. A {@code null} value leaves
+	 * the range open to that side.
+	 * @param fromKey
+	 * @param toKey
+	 * @return
+	 */
+	public RowCursor openCursor(IndexKey fromKey, IndexKey toKey);
 
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.Arrays;
+
+import de.ozml.hsqldiffextract.entity.Row;
+
+/**
+ * Represents the rows of a table held in memory. The rows are stored in an array at the
+ * slots assigned by a {@link KeyIndex}, in order of their first occurrence within the file.
+ */
+public class RowStore {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private KeyIndex keys;
+	private Row[] rows;
+
+	public RowStore() {
+		this.keys = new KeyIndex();
+		this.rows = new Row[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds the row with the specified key. If the key is already contained the row is replaced.
+	 * @param key
+	 * @param row
+	 */
+	public void add(IndexKey key, Row row) {
+		int slot = keys.add(key);
+		if(slot == rows.length){
+			rows = Arrays.copyOf(rows, slot * 2);
+		}
+		rows[slot] = row;
+	}
+
+	/**
+	 * Adds all rows of the other store in order of their slots, as if they were added
+	 * after the rows of this store.
+	 * @param other
+	 */
+	public void addAll(RowStore other) {
+		for(int slot = 0; slot < other.size(); slot++){
+			add(other.keys.getKey(slot), other.rows[slot]);
+		}
+	}
+
+	/**
+	 * Returns the index of the keys.
+	 * @return
+	 */
+	public KeyIndex getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * @return
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Returns the row in the specified slot.
+	 * @param slot
+	 * @return
+	 */
+	public Row getRow(int slot) {
+		return rows[slot];
+	}
+
+}
\ No newline at end of file
@@ -22,51 +22,48 @@ public class RowUtil {
 		return Arrays.equals(row1.getPrimaryKey(), row2.getPrimaryKey());
 	}
 
-	/**
-	 * Generates an index key string from the column data array. The array consists of a rows
-	 * primary key columns data which are as a result concatenated with a colon.
-	 * @param columnData
-	 * @return
-	 */
-	public static String genIndexKey(String[] columnData){
-		return String.join(",", columnData);
-	}
-
-	/**
-	 * Compares the indexKeys of the two rows.
-	 * @param row1
-	 * @param row2
-	 * @return
-	 */
-	public static int compareIndexKeys(Row row1, Row row2){
-		return compareIndexKeys(genIndexKey(row1.getPrimaryKey()), genIndexKey(row2.getPrimaryKey()));
-	}
-
 	/**
 	 * Compares the two indexKeys.
 	 * @param indexKey1
 	 * @param indexKey2
 	 * @return
 	 */
-	public static int compareIndexKeys(String indexKey1, String indexKey2){
+	public static int compareIndexKeys(IndexKey indexKey1, IndexKey indexKey2){
 		return indexKey1.compareTo(indexKey2);
 	}
 
 	/**
-	 * Returns a comparator which sorts index key strings in
+	 * Returns a comparator which sorts index keys in
 	 * ascending order.
 	 * @return
 	 */
-	public static Comparator<String> indexKeyComparator(){
+	public static Comparator<IndexKey> indexKeyComparator(){
 		return (o1, o2) -> compareIndexKeys(o1, o2);
 	}
 
+	/**
+	 * Checks whether the index keys are provided in ascending order by the iterable.
+	 * @param indexKeys
+	 * @return
+	 */
+	public static boolean isSorted(Iterable<IndexKey> indexKeys) {
+		IndexKey previous = null;
+		for (IndexKey indexKey : indexKeys) {
+			if(previous != null && compareIndexKeys(previous, indexKey) > 0){
+				return false;
+			}
+			previous = indexKey;
+		}
+
+		return true;
+	}
+
 	/**
 	 * Returns a sorted index list.
 	 * @return
 	 */
-	public static List<String> sortIndexKeyList(Collection<String> indexCollection) {
-		List<String> list = new ArrayList<>(indexCollection);
+	public static List<IndexKey> sortIndexKeyList(Collection<IndexKey> indexCollection) {
+		List<IndexKey> list = new ArrayList<>(indexCollection);
 		list.sort(RowUtil.indexKeyComparator());
 
 		return list;
@@ -0,0 +1,193 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the progress of a run, so an interrupted run can be resumed. For each table the journal
+ * holds whether it is completed or up to which key position its output is committed, together with
+ * the length of the output at that position. Each record is a single line written unbuffered at the
+ * end of the file, so it survives the termination of the process. A line broken off by the
+ * termination is ignored when the journal is loaded. The journal starts with the paths, sizes and
+ * modification times of the input files and the settings of the output, so a run is only resumed
+ * with the same input files into the same output.
+ */
+public class RunJournal {
+
+	private static final String RECORD_COMMIT = "COMMIT";
+	private static final String RECORD_COMPLETE = "COMPLETE";
+	private static final String RECORD_INPUT = "INPUT";
+	private static final String RECORD_OUTPUT = "OUTPUT";
+	private static final String SEPARATOR = "\t";
+
+	private String path;
+	private FileOutputStream output;
+	private Set<String> completedTables = new HashSet<>();
+	private Map<String, Tuple<IndexKey, Long>> positions = new HashMap<>();
+	private List<String> inputs = new ArrayList<>();
+
+	public RunJournal(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * Opens the journal for recording. If resumed, the records of the former run are loaded and
+	 * kept, otherwise the journal is started with the paths, sizes and modification times of the
+	 * input files and the output settings. A former run is only resumed if it was recorded with the
+	 * same input files, which did not change in size or modification time, and the same output
+	 * settings. If the journal cannot be opened, the run is not recorded.
+	 * @param isResumed
+	 * @param inputPaths paths of the input files
+	 * @param outputSettings settings which determine the output files, like their path and format
+	 * @return false if the journal of the former run belongs to other input files or output settings,
+	 * it is not opened then
+	 */
+	public boolean open(boolean isResumed, List<String> inputPaths, List<String> outputSettings) {
+		List<String> currentInputs = new ArrayList<>();
+		for (String inputPath : inputPaths) {
+			File file = new File(inputPath);
+			currentInputs.add(RECORD_INPUT + SEPARATOR + file.getAbsolutePath() + SEPARATOR + file.length() + SEPARATOR + file.lastModified());
+		}
+		for (String outputSetting : outputSettings) {
+			currentInputs.add(RECORD_OUTPUT + SEPARATOR + outputSetting.replace(SEPARATOR, " "));
+		}
+
+		try {
+			boolean isLineOpen = false;
+			boolean isContinued = false;
+			if(isResumed && Files.exists(Paths.get(path))){
+				isLineOpen = !load();
+				if(!inputs.isEmpty() || !positions.isEmpty() || !completedTables.isEmpty()){
+					if(!inputs.equals(currentInputs)){
+						positions.clear();
+						completedTables.clear();
+						return false;
+					}
+					isContinued = true;
+				}
+			}
+			output = new FileOutputStream(path, isContinued);
+			if(isContinued && isLineOpen){
+				// Ends the line broken off within the former run
+				output.write('\n');
+			}
+			if(!isContinued){
+				inputs = currentInputs;
+				for (String input : inputs) {
+					write(input);
+				}
+			}
+		} catch(IOException e){
+			e.printStackTrace();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Closes the journal.
+	 */
+	public synchronized void close() {
+		try{if(output != null) output.close();} catch(Exception e){}
+		output = null;
+	}
+
+	/**
+	 * Checks whether the table was completed within a former run.
+	 * @param tableName
+	 * @return
+	 */
+	public synchronized boolean isCompleted(String tableName) {
+		return completedTables.contains(tableName);
+	}
+
+	/**
+	 * Returns the last committed position of the table as the key of the first row not processed
+	 * and the length of the output in bytes, or {@code null} if no position was committed.
+	 * @param tableName
+	 * @return
+	 */
+	public synchronized Tuple<IndexKey, Long> getPosition(String tableName) {
+		return positions.get(tableName);
+	}
+
+	/**
+	 * Records that the output of the table holds the statements of all rows with keys lower
+	 * than the specified key and has the specified length. The output must be flushed before.
+	 * @param tableName
+	 * @param key
+	 * @param length
+	 */
+	public synchronized void commit(String tableName, IndexKey key, long length) {
+		positions.put(tableName, new Tuple<>(key, length));
+		write(RECORD_COMMIT + SEPARATOR + tableName + SEPARATOR + key + SEPARATOR + length);
+	}
+
+	/**
+	 * Records that the table is completed.
+	 * @param tableName
+	 */
+	public synchronized void complete(String tableName) {
+		positions.remove(tableName);
+		completedTables.add(tableName);
+		write(RECORD_COMPLETE + SEPARATOR + tableName);
+	}
+
+	/**
+	 * Appends the record as a single line to the journal.
+	 * @param record
+	 */
+	private void write(String record) {
+		if(output == null){
+			return;
+		}
+
+		try {
+			output.write((record + "\n").getBytes(StandardCharsets.UTF_8));
+		} catch(IOException e){
+			e.printStackTrace();
+			close();
+		}
+	}
+
+	/**
+	 * Loads the records of a former run. Later records replace earlier ones. Only complete
+	 * lines are taken into account.
+	 * @return false if the last line is broken off
+	 * @throws IOException
+	 */
+	private boolean load() throws IOException {
+		String content = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+		int end = content.lastIndexOf('\n');
+		if(end == -1){
+			return content.isEmpty();
+		}
+
+		for (String line : content.substring(0, end).split("\n")) {
+			String[] fields = line.split(SEPARATOR);
+			if((fields.length == 4 && fields[0].equals(RECORD_INPUT)) || (fields.length == 2 && fields[0].equals(RECORD_OUTPUT))){
+				inputs.add(line);
+			} else if(fields.length == 2 && fields[0].equals(RECORD_COMPLETE)){
+				positions.remove(fields[1]);
+				completedTables.add(fields[1]);
+			} else if(fields.length == 4 && fields[0].equals(RECORD_COMMIT)){
+				try {
+					positions.put(fields[1], new Tuple<>(IndexKey.parse(fields[2]), Long.parseLong(fields[3])));
+				} catch(NumberFormatException e){}
+			}
+		}
+
+		return end == content.length() - 1;
+	}
+
+}
\ No newline at end of file
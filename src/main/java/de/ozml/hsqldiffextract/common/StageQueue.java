@@ -0,0 +1,50 @@
+package de.ozml.hsqldiffextract.common;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Represents a bounded queue between two stages of a pipeline. A producer putting an item into
+ * a full queue waits until the consumer has taken an item, so a slow stage slows down the stages
+ * before it instead of accumulating items in memory. The occupancy is recorded within the
+ * {@link PipelineMonitor.Statistics} of the queue.
+ */
+public class StageQueue<T> {
+
+	private ArrayBlockingQueue<T> queue;
+	private PipelineMonitor.Statistics statistics;
+
+	StageQueue(int capacity, PipelineMonitor.Statistics statistics) {
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Puts the item into the queue, waiting for space if necessary.
+	 * @param item
+	 * @throws InterruptedException
+	 */
+	public void put(T item) throws InterruptedException {
+		boolean wasFull = !queue.offer(item);
+		if(wasFull){
+			queue.put(item);
+		}
+		statistics.recordPut(queue.size(), wasFull);
+	}
+
+	/**
+	 * Takes the next item from the queue, waiting for an item if necessary.
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public T take() throws InterruptedException {
+		T item = queue.poll();
+		boolean wasEmpty = item == null;
+		if(wasEmpty){
+			item = queue.take();
+		}
+		statistics.recordTake(wasEmpty);
+
+		return item;
+	}
+
+}
\ No newline at end of file
@@ -2,13 +2,25 @@ package de.ozml.hsqldiffextract.entity;
 
 import java.util.Arrays;
 
+import de.ozml.hsqldiffextract.parser.ValueTokenizer;
+
 /**
- * Represents a sql table data row.
+ * Represents a sql table data row. The values are either held as strings or as a data list span
+ * of a source string. In the latter case the data list may be tokenized only partially, for example
+ * up to the last primary key column, and the remaining values are tokenized on first request. The
+ * value strings are cut on demand.
+ * Rows may be read by several threads at the same time. The lazily built offsets and value strings
+ * are therefore published as whole arrays through volatile fields, so a thread either sees the
+ * former or the completed state. Rows are fully tokenized once the offsets cover all columns.
  */
 public class Row {
 
 	private Table table;
-	private String[] value;
+	private volatile String[] value;
+	private String source;
+	private int dataStart;
+	private int dataEnd;
+	private volatile int[] offsets;
 
 	public Row() {
 	}
@@ -18,6 +30,24 @@ public class Row {
 		this.value = value;
 	}
 
+	/**
+	 * Creates a row whose data list is located within the specified span of the source string.
+	 * The offsets array holds a pair of start and end index for each of the leading values which
+	 * are already tokenized. The remaining values are tokenized on first request.
+	 * @param table
+	 * @param source
+	 * @param dataStart index of the first data character
+	 * @param dataEnd index after the last data character
+	 * @param offsets offsets of the tokenized values
+	 */
+	public Row(Table table, String source, int dataStart, int dataEnd, int[] offsets) {
+		this.table = table;
+		this.source = source;
+		this.dataStart = dataStart;
+		this.dataEnd = dataEnd;
+		this.offsets = offsets;
+	}
+
 	public Table getTable() {
 		return table;
 	}
@@ -27,28 +57,220 @@ public class Row {
 	}
 
 	public String[] getValue() {
-		return value;
+		String[] values = value;
+		if(values == null && source != null){
+			int[] current = tokenize();
+			values = new String[current.length / 2];
+			for(int i = 0; i < values.length; i++){
+				values[i] = source.substring(current[i * 2], current[i * 2 + 1]);
+			}
+			value = values;
+		}
+
+		return values;
 	}
 
 	public void setValue(String[] value) {
 		this.value = value;
+		this.source = null;
+		this.offsets = null;
+	}
+
+	/**
+	 * Returns the value of the column with the specified index.
+	 * @param index
+	 * @return
+	 */
+	public String getValue(int index) {
+		String[] values = value;
+		if(values != null){
+			return values[index];
+		}
+
+		int[] current = offsets;
+		if(index * 2 >= current.length){
+			current = tokenize();
+		}
+
+		return source.substring(current[index * 2], current[index * 2 + 1]);
+	}
+
+	/**
+	 * Appends the value of the column with the specified index to the buffer. A value within
+	 * the source string is appended without cutting it out.
+	 * @param index
+	 * @param buffer
+	 */
+	public void appendValue(int index, StringBuilder buffer) {
+		String[] values = value;
+		if(values != null){
+			buffer.append(values[index]);
+			return;
+		}
+
+		int[] current = offsets;
+		if(index * 2 >= current.length){
+			current = tokenize();
+		}
+
+		buffer.append(source, current[index * 2], current[index * 2 + 1]);
+	}
+
+	/**
+	 * Returns the number of values.
+	 * @return
+	 */
+	public int getValueCount() {
+		String[] values = value;
+		if(values != null){
+			return values.length;
+		}
+
+		if(source == null){
+			return 0;
+		}
+
+		return tokenize().length / 2;
 	}
 
 	public String[] getPrimaryKey(){
 		int[] pkIndices = table.getPrimaryKeyIndices();
 		String[] pkValue = new String[pkIndices.length];
 		for(int i = 0; i < pkIndices.length; i++){
-			pkValue[i] = value[pkIndices[i]];
+			pkValue[i] = getValue(pkIndices[i]);
 		}
 
 		return pkValue;
 	}
 
+	/**
+	 * Checks whether the raw data list of this row equals the one of the other row. If both
+	 * rows are backed by a source string, the spans are compared without tokenizing them.
+	 * A result of false does not imply that the values differ.
+	 * @param other
+	 * @return
+	 */
+	public boolean isRawEqual(Row other) {
+		if(source == null || other.source == null){
+			return false;
+		}
+
+		int length = dataEnd - dataStart;
+		return length == other.dataEnd - other.dataStart
+			&& source.regionMatches(dataStart, other.source, other.dataStart, length);
+	}
+
+	/**
+	 * Returns a 64 bit fingerprint of the row content. For rows backed by a source string the
+	 * fingerprint is computed from the raw data list, so rows with equal raw data have equal
+	 * fingerprints. Rows with differing fingerprints have differing raw data.
+	 * @return
+	 */
+	public long getFingerprint() {
+		if(source != null){
+			return fingerprint(source, dataStart, dataEnd);
+		}
+
+		String data = value != null ? String.join(",", value) : "";
+		return fingerprint(data, 0, data.length());
+	}
+
+	/**
+	 * Computes a 64 bit FNV-1a hash of the characters within the span, followed by a final
+	 * mixing step to spread the bits.
+	 * @param s
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	private static long fingerprint(String s, int start, int end) {
+		long h = 0xcbf29ce484222325L;
+		for(int i = start; i < end; i++){
+			h ^= s.charAt(i);
+			h *= 0x100000001b3L;
+		}
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+
+		return h;
+	}
+
+	/**
+	 * Checks whether the value of the column with the specified index equals the
+	 * corresponding value of the other row.
+	 * @param index
+	 * @param other
+	 * @return
+	 */
+	public boolean isValueEqual(int index, Row other) {
+		if(value == null && other.value == null && source != null && other.source != null){
+			int[] current = offsets;
+			if(index * 2 >= current.length){
+				current = tokenize();
+			}
+			int[] otherCurrent = other.offsets;
+			if(index * 2 >= otherCurrent.length){
+				otherCurrent = other.tokenize();
+			}
+
+			int start = current[index * 2];
+			int length = current[index * 2 + 1] - start;
+			int otherStart = otherCurrent[index * 2];
+			int otherLength = otherCurrent[index * 2 + 1] - otherStart;
+
+			return length == otherLength && source.regionMatches(start, other.source, otherStart, length);
+		}
+
+		return getValue(index).equals(other.getValue(index));
+	}
+
+	/**
+	 * Tokenizes the whole data list if not yet done and returns the offsets of all values. The
+	 * offsets are filled completely before they are published, threads tokenizing at the same time
+	 * build equal offsets.
+	 * @return
+	 * @throws IllegalStateException if the value count does not match the column count of the table
+	 */
+	private int[] tokenize() {
+		int[] current = offsets;
+		int columnCount = table.getColumns().length;
+		if(current.length < columnCount * 2){
+			int[] buffer = new int[(columnCount + 1) * 2];
+			int count = ValueTokenizer.tokenize(source, dataStart, dataEnd, buffer);
+			if(count != columnCount){
+				throw new IllegalStateException("Row of table " + table.getName() + " holds " + (count == -1 ? "more than " + columnCount : "" + count)
+					+ " values instead of " + columnCount + ": " + source.substring(dataStart, dataEnd));
+			}
+			current = Arrays.copyOf(buffer, columnCount * 2);
+			offsets = current;
+		}
+
+		return current;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.hashCode(value);
+		if(value == null && source != null){
+			// Equals Arrays.hashCode of the value strings without cutting them
+			int[] current = tokenize();
+			int valuesHash = 1;
+			for(int i = 0; i < current.length; i += 2){
+				int h = 0;
+				for(int j = current[i]; j < current[i + 1]; j++){
+					h = prime * h + source.charAt(j);
+				}
+				valuesHash = prime * valuesHash + h;
+			}
+			result = prime * result + valuesHash;
+		} else {
+			result = prime * result + Arrays.hashCode(value);
+		}
 		return result;
 	}
 
@@ -61,8 +283,14 @@ public class Row {
 		if (getClass() != obj.getClass())
 			return false;
 		Row other = (Row) obj;
-		if (!Arrays.equals(value, other.value))
+		if (isRawEqual(other))
+			return true;
+		if (getValueCount() != other.getValueCount())
 			return false;
+		for (int i = 0; i < getValueCount(); i++) {
+			if (!isValueEqual(i, other))
+				return false;
+		}
 		return true;
 	}
 
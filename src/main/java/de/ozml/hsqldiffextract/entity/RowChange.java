@@ -0,0 +1,86 @@
+package de.ozml.hsqldiffextract.entity;
+
+import de.ozml.hsqldiffextract.common.IndexKey;
+
+/**
+ * Represents the net change of a single table row, collapsed from a sequence of insert and delete
+ * queries on its primary key. The change holds whether the row existed before the first query and
+ * the row after the last query, which is {@code null} if the row was deleted.
+ */
+public class RowChange {
+
+	private Table table;
+	private IndexKey key;
+	private String[] keyValues;
+	private boolean isExisting;
+	private Row row;
+
+	public RowChange(Table table, IndexKey key, String[] keyValues, boolean isExisting) {
+		this.table = table;
+		this.key = key;
+		this.keyValues = keyValues;
+		this.isExisting = isExisting;
+	}
+
+	public Table getTable() {
+		return table;
+	}
+
+	public IndexKey getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the primary key values in the order of the table definition.
+	 * @return
+	 */
+	public String[] getKeyValues() {
+		return keyValues;
+	}
+
+	/**
+	 * Checks whether the row existed before the change.
+	 * @return
+	 */
+	public boolean isExisting() {
+		return isExisting;
+	}
+
+	/**
+	 * Returns the row after the change or {@code null} if it was deleted.
+	 * @return
+	 */
+	public Row getRow() {
+		return row;
+	}
+
+	public void setRow(Row row) {
+		this.row = row;
+	}
+
+	/**
+	 * Checks whether the row is inserted by the change.
+	 * @return
+	 */
+	public boolean isInsert() {
+		return !isExisting && row != null;
+	}
+
+	/**
+	 * Checks whether the row is replaced by the change. As the former values of the row are
+	 * unknown, all of its values are taken as changed.
+	 * @return
+	 */
+	public boolean isUpdate() {
+		return isExisting && row != null;
+	}
+
+	/**
+	 * Checks whether the row is deleted by the change.
+	 * @return
+	 */
+	public boolean isDelete() {
+		return isExisting && row == null;
+	}
+
+}
\ No newline at end of file
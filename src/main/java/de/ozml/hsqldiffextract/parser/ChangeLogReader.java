@@ -0,0 +1,338 @@
+package de.ozml.hsqldiffextract.parser;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.ozml.hsqldiffextract.common.Compression;
+
+/**
+ * Reads a binary change log record by record. A change log starts with the bytes {@code HDCL}
+ * and a version byte, followed by records of a tag byte, the payload length and the payload.
+ * Numbers are unsigned varints of 7 bit groups, least significant first, and strings are a byte
+ * length followed by the UTF-8 bytes.
+ * <p>
+ * A table record holds the table id, the table name, the column names and the indices of the
+ * primary key columns. A change record holds the table id, the primary key values, a bitmask of
+ * one bit per column, least significant bit first, and the values of the set columns. Inserts set
+ * all columns, updates the changed columns and deletes none. Values are kept as sql literals, like
+ * {@code 'text'}, {@code 12} or {@code NULL}.
+ * <p>
+ * The payload of the current record is held in a reused buffer and values are only decoded on
+ * request, so records can be skipped without creating any objects.
+ */
+public class ChangeLogReader implements Closeable {
+
+	public static final byte[] MAGIC = { 'H', 'D', 'C', 'L' };
+	public static final int VERSION = 1;
+	public static final int TABLE = 0;
+	public static final int INSERT = 1;
+	public static final int UPDATE = 2;
+	public static final int DELETE = 3;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private InputStream in;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferLength;
+	private int bufferPosition;
+	private byte[] record = new byte[256];
+	private int recordPosition;
+	private Map<Integer, TableDefinition> tables = new HashMap<>();
+	private TableDefinition table;
+	private int tableId;
+	private int operation;
+	private int[] keyOffsets = new int[0];
+	private int maskOffset;
+	private int[] valueOffsets = new int[0];
+
+	/**
+	 * Creates a reader of the change log file, which may be compressed, see {@link Compression}.
+	 * @param path
+	 * @throws IOException
+	 */
+	public ChangeLogReader(String path) throws IOException {
+		this(Compression.detect(path).open(path));
+	}
+
+	/**
+	 * Creates a reader of the stream, which must be positioned at the start of a change log.
+	 * @param in
+	 * @throws IOException if the stream holds no change log of a supported version
+	 */
+	public ChangeLogReader(InputStream in) throws IOException {
+		this.in = in;
+		for(int i = 0; i < MAGIC.length; i++){
+			if(readByte() != MAGIC[i]){
+				throw new IOException("Not a change log");
+			}
+		}
+		int version = readByte();
+		if(version < 1 || version > VERSION){
+			throw new IOException("Unsupported change log version " + version);
+		}
+	}
+
+	/**
+	 * Moves to the next change. Table records are read on the way.
+	 * @return false at the end of the log
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		int tag;
+		while((tag = readByte()) != -1){
+			readRecord();
+			if(tag == TABLE){
+				readTable();
+			} else if(tag == INSERT || tag == UPDATE || tag == DELETE){
+				readChange(tag);
+				return true;
+			}
+			// Unknown records are skipped
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the operation of the current change, {@link #INSERT}, {@link #UPDATE} or {@link #DELETE}.
+	 * @return
+	 */
+	public int getOperation() {
+		return operation;
+	}
+
+	/**
+	 * Returns the id of the table of the current change.
+	 * @return
+	 */
+	public int getTableId() {
+		return tableId;
+	}
+
+	/**
+	 * Returns the name of the table of the current change.
+	 * @return
+	 */
+	public String getTableName() {
+		return table.name;
+	}
+
+	/**
+	 * Returns the column names of the table of the current change.
+	 * @return
+	 */
+	public String[] getColumnNames() {
+		return table.columnNames;
+	}
+
+	/**
+	 * Returns the column indices of the primary key values.
+	 * @return
+	 */
+	public int[] getKeyIndices() {
+		return table.keyIndices;
+	}
+
+	/**
+	 * Returns the number of primary key values.
+	 * @return
+	 */
+	public int getKeyCount() {
+		return table.keyIndices.length;
+	}
+
+	/**
+	 * Returns the primary key value with the specified index.
+	 * @param index
+	 * @return
+	 */
+	public String getKeyValue(int index) {
+		return decode(keyOffsets[index * 2], keyOffsets[index * 2 + 1]);
+	}
+
+	/**
+	 * Checks whether the current change holds a value of the column with the specified index.
+	 * @param index
+	 * @return
+	 */
+	public boolean isColumnSet(int index) {
+		return (record[maskOffset + (index >> 3)] & (1 << (index & 7))) != 0;
+	}
+
+	/**
+	 * Returns the value of the column with the specified index or {@code null} if the change
+	 * holds no value of the column.
+	 * @param index
+	 * @return
+	 */
+	public String getValue(int index) {
+		int start = valueOffsets[index * 2];
+		return start < 0 ? null : decode(start, valueOffsets[index * 2 + 1]);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void readTable() throws IOException {
+		TableDefinition definition = new TableDefinition();
+		int id = readInt();
+		definition.name = readString();
+		definition.columnNames = new String[readInt()];
+		for(int i = 0; i < definition.columnNames.length; i++){
+			definition.columnNames[i] = readString();
+		}
+		definition.keyIndices = new int[readInt()];
+		for(int i = 0; i < definition.keyIndices.length; i++){
+			definition.keyIndices[i] = readInt();
+		}
+		tables.put(id, definition);
+	}
+
+	private void readChange(int tag) throws IOException {
+		operation = tag;
+		tableId = readInt();
+		table = tables.get(tableId);
+		if(table == null){
+			throw new IOException("Undefined table " + tableId);
+		}
+
+		int keyCount = table.keyIndices.length;
+		if(keyOffsets.length < keyCount * 2){
+			keyOffsets = new int[keyCount * 2];
+		}
+		for(int i = 0; i < keyCount; i++){
+			skipString(keyOffsets, i);
+		}
+
+		int columnCount = table.columnNames.length;
+		maskOffset = recordPosition;
+		recordPosition += (columnCount + 7) / 8;
+		if(valueOffsets.length < columnCount * 2){
+			valueOffsets = new int[columnCount * 2];
+		}
+		for(int i = 0; i < columnCount; i++){
+			if(isColumnSet(i)){
+				skipString(valueOffsets, i);
+			} else {
+				valueOffsets[i * 2] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Reads the payload length and the payload of the current record into the record buffer.
+	 * @throws IOException
+	 */
+	private void readRecord() throws IOException {
+		int length = 0;
+		for(int shift = 0; ; shift += 7){
+			int b = readByte();
+			if(b == -1){
+				throw new EOFException("Unexpected end of change log");
+			}
+			length |= (b & 0x7f) << shift;
+			if(b < 0x80){
+				break;
+			}
+		}
+
+		if(record.length < length){
+			record = Arrays.copyOf(record, Math.max(length, record.length * 2));
+		}
+		int position = 0;
+		while(position < length){
+			if(!fill()){
+				throw new EOFException("Unexpected end of change log");
+			}
+			int count = Math.min(length - position, bufferLength - bufferPosition);
+			System.arraycopy(buffer, bufferPosition, record, position, count);
+			bufferPosition += count;
+			position += count;
+		}
+		recordPosition = 0;
+	}
+
+	private int readInt() {
+		int value = 0;
+		for(int shift = 0; ; shift += 7){
+			int b = record[recordPosition++];
+			value |= (b & 0x7f) << shift;
+			if((b & 0x80) == 0){
+				return value;
+			}
+		}
+	}
+
+	private String readString() {
+		int length = readInt();
+		String value = decode(recordPosition, length);
+		recordPosition += length;
+		return value;
+	}
+
+	/**
+	 * Stores the start and length of the string at the current position in the offsets array
+	 * and moves behind it.
+	 * @param offsets
+	 * @param index
+	 */
+	private void skipString(int[] offsets, int index) {
+		int length = readInt();
+		offsets[index * 2] = recordPosition;
+		offsets[index * 2 + 1] = length;
+		recordPosition += length;
+	}
+
+	private String decode(int start, int length) {
+		return new String(record, start, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the next byte of the stream or -1 at its end.
+	 * @return
+	 * @throws IOException
+	 */
+	private int readByte() throws IOException {
+		if(!fill()){
+			return -1;
+		}
+
+		return buffer[bufferPosition++] & 0xff;
+	}
+
+	/**
+	 * Reads the next bytes of the stream into the buffer if all bytes of the buffer are consumed.
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if(bufferPosition < bufferLength){
+			return true;
+		}
+
+		bufferPosition = 0;
+		bufferLength = Math.max(in.read(buffer), 0);
+
+		return bufferLength > 0;
+	}
+
+	/**
+	 * Represents the table record of a table id.
+	 */
+	private static class TableDefinition {
+
+		private String name;
+		private String[] columnNames;
+		private int[] keyIndices;
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,186 @@
+package de.ozml.hsqldiffextract.parser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Recognizes sql insert query lines of the form {@code INSERT INTO <name> VALUES (<data>)} without
+ * the use of regular expressions. The table name is resolved from the set of tables passed to the
+ * constructor and the span of the data list is handed out as start and end index within the line,
+ * so no intermediate strings are created.
+ */
+public class InsertLexer {
+
+	private static final String INSERT_PREFIX = "INSERT INTO ";
+	private static final String VALUES_KEYWORD = "VALUES";
+
+	private Table[][] tablesByLength;
+	private Table table;
+	private int dataStart;
+	private int dataEnd;
+
+	public InsertLexer(Collection<Table> tables) {
+		int maxLength = 0;
+		for (Table table : tables) {
+			maxLength = Math.max(maxLength, table.getName().length());
+		}
+
+		List<List<Table>> buckets = new ArrayList<>();
+		for(int i = 0; i <= maxLength; i++){
+			buckets.add(new ArrayList<>());
+		}
+		for (Table table : tables) {
+			buckets.get(table.getName().length()).add(table);
+		}
+
+		tablesByLength = new Table[maxLength + 1][];
+		for(int i = 0; i <= maxLength; i++){
+			tablesByLength[i] = buckets.get(i).toArray(new Table[buckets.get(i).size()]);
+		}
+	}
+
+	/**
+	 * Tries to recognize the line as insert query of one of the known tables. On success the
+	 * table and the data span are available through the getters until the next call.
+	 * @param line
+	 * @return
+	 */
+	public boolean accept(String line) {
+		table = null;
+		if(!line.startsWith(INSERT_PREFIX)){
+			return false;
+		}
+
+		int nameStart = INSERT_PREFIX.length();
+		int nameEnd = line.indexOf(' ', nameStart);
+		if(nameEnd == -1){
+			return false;
+		}
+
+		Table match = lookupTable(line, nameStart, nameEnd - nameStart);
+		if(match == null){
+			return false;
+		}
+
+		int start = findDataStart(line, nameEnd);
+		int end = findDataEnd(line);
+		if(start == -1 || end < start){
+			return false;
+		}
+
+		table = match;
+		dataStart = start;
+		dataEnd = end;
+
+		return true;
+	}
+
+	/**
+	 * Returns the table of the last accepted line.
+	 * @return
+	 */
+	public Table getTable() {
+		return table;
+	}
+
+	/**
+	 * Returns the index of the first character of the data list within the last accepted line.
+	 * @return
+	 */
+	public int getDataStart() {
+		return dataStart;
+	}
+
+	/**
+	 * Returns the index after the last character of the data list within the last accepted line.
+	 * @return
+	 */
+	public int getDataEnd() {
+		return dataEnd;
+	}
+
+	/**
+	 * Checks whether the line is an insert query of the specified table.
+	 * @param line
+	 * @param table
+	 * @return
+	 */
+	public static boolean isInsertOf(String line, Table table) {
+		String name = table.getName();
+		return line.startsWith(INSERT_PREFIX)
+			&& line.regionMatches(INSERT_PREFIX.length(), name, 0, name.length())
+			&& line.length() > INSERT_PREFIX.length() + name.length()
+			&& line.charAt(INSERT_PREFIX.length() + name.length()) == ' ';
+	}
+
+	/**
+	 * Returns the index of the first character of the data list of an insert query
+	 * for the specified table, or -1 if the line is no such query.
+	 * @param line
+	 * @param table
+	 * @return
+	 */
+	public static int findDataStart(String line, Table table) {
+		if(!isInsertOf(line, table)){
+			return -1;
+		}
+
+		return findDataStart(line, INSERT_PREFIX.length() + table.getName().length());
+	}
+
+	/**
+	 * Returns the index of the first character of the data list, starting the search at the
+	 * space following the table name, or -1 if the {@code VALUES (} part is missing.
+	 * @param line
+	 * @param index
+	 * @return
+	 */
+	private static int findDataStart(String line, int index) {
+		if(!line.startsWith(VALUES_KEYWORD, index + 1)){
+			return -1;
+		}
+
+		int i = index + 1 + VALUES_KEYWORD.length();
+		while(i < line.length() && Character.isWhitespace(line.charAt(i))){
+			i++;
+		}
+
+		return i < line.length() && line.charAt(i) == '(' ? i + 1 : -1;
+	}
+
+	/**
+	 * Returns the index of the closing bracket of the data list, which must be the
+	 * last character of the line, or -1 if missing.
+	 * @param line
+	 * @return
+	 */
+	public static int findDataEnd(String line) {
+		int last = line.length() - 1;
+		return last >= 0 && line.charAt(last) == ')' ? last : -1;
+	}
+
+	/**
+	 * Looks up the table whose name equals the specified region of the line.
+	 * @param line
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	private Table lookupTable(String line, int offset, int length) {
+		if(length >= tablesByLength.length){
+			return null;
+		}
+
+		for (Table candidate : tablesByLength[length]) {
+			if(line.regionMatches(offset, candidate.getName(), 0, length)){
+				return candidate;
+			}
+		}
+
+		return null;
+	}
+
+}
\ No newline at end of file
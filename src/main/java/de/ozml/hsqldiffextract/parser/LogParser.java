@@ -0,0 +1,223 @@
+package de.ozml.hsqldiffextract.parser;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.common.KeyEncoder;
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.RowChange;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Provides methods to extract the net row changes of tables from a HSQLDB log file, which holds
+ * the queries executed since the script file was written. Insert and delete queries are collected
+ * per session and applied on commit, so rolled back and uncommitted queries are dropped like on the
+ * recovery of the database. Updates are logged as delete followed by insert. The queries on a
+ * primary key are collapsed into a single {@link RowChange}. Tables without primary key and all
+ * other queries are ignored.
+ */
+public class LogParser {
+
+	private static final String SESSION_PREFIX = "/*C";
+	private static final String SESSION_SUFFIX = "*/";
+	private static final String INSERT_PREFIX = "INSERT INTO ";
+	private static final String DELETE_PREFIX = "DELETE FROM ";
+	private static final String WHERE_KEYWORD = " WHERE ";
+	private static final String CONDITION_SEPARATOR = " AND ";
+	private static final String COMMIT = "COMMIT";
+	private static final String ROLLBACK = "ROLLBACK";
+
+	/**
+	 * Builds the net row changes of the given tables from the queries contained in the specified
+	 * log file. The result maps the table names to the changes, which are mapped by the keys of
+	 * the rows. If the log cannot be read completely, the read fails, as changes which were not
+	 * read would be missing within the output.
+	 * @param tables target tables
+	 * @param path path to log file
+	 * @return
+	 * @throws UncheckedIOException if the log could not be read completely
+	 */
+	public static Map<String, Map<IndexKey, RowChange>> readChangesFromLog(Collection<Table> tables, String path){
+		Map<String, Map<IndexKey, RowChange>> changes = new HashMap<>();
+		Map<String, Table> keyedTables = new HashMap<>();
+		Map<String, KeyEncoder> encoders = new HashMap<>();
+		for (Table table : tables) {
+			changes.put(table.getName(), new HashMap<>());
+			if(table.getPrimaryKeyIndices().length > 0){
+				keyedTables.put(table.getName(), table);
+				encoders.put(table.getName(), new KeyEncoder(table));
+			}
+		}
+
+		InsertLexer lexer = new InsertLexer(keyedTables.values());
+		Map<String, List<String>> pending = new HashMap<>();
+		String session = "";
+
+		BufferedReader reader = null;
+		try{
+			reader = new BufferedReader(new FileReader(path));
+			String line = reader.readLine();
+
+			while(line != null){
+				if(line.startsWith(SESSION_PREFIX)){
+					int end = line.indexOf(SESSION_SUFFIX);
+					if(end != -1){
+						session = line.substring(SESSION_PREFIX.length(), end);
+						line = line.substring(end + SESSION_SUFFIX.length());
+					}
+				}
+
+				if(line.equals(COMMIT)){
+					List<String> queries = pending.remove(session);
+					if(queries != null){
+						for (String query : queries) {
+							applyQuery(query, lexer, keyedTables, encoders, changes);
+						}
+					}
+				} else if(line.equals(ROLLBACK)){
+					pending.remove(session);
+				} else if(line.startsWith(INSERT_PREFIX) || line.startsWith(DELETE_PREFIX)){
+					pending.computeIfAbsent(session, k -> new ArrayList<>()).add(line);
+				}
+
+				line = reader.readLine();
+			}
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		} finally{
+			try{if(reader != null) reader.close();} catch(Exception e){}
+		}
+
+		return changes;
+	}
+
+	/**
+	 * Applies the insert or delete query to the changes of its table.
+	 * @param query
+	 * @param lexer
+	 * @param keyedTables
+	 * @param encoders
+	 * @param changes
+	 */
+	private static void applyQuery(String query, InsertLexer lexer, Map<String, Table> keyedTables,
+			Map<String, KeyEncoder> encoders, Map<String, Map<IndexKey, RowChange>> changes){
+		if(lexer.accept(query)){
+			Table table = lexer.getTable();
+			Row row = RowParser.extractRow(table, query, ParseMode.Full);
+			if(row != null){
+				IndexKey key = encoders.get(table.getName()).encode(row);
+				Map<IndexKey, RowChange> tableChanges = changes.get(table.getName());
+				RowChange change = tableChanges.get(key);
+				if(change == null){
+					change = new RowChange(table, key, row.getPrimaryKey(), false);
+					tableChanges.put(key, change);
+				}
+				change.setRow(row);
+			}
+		} else if(query.startsWith(DELETE_PREFIX)){
+			int whereStart = query.indexOf(WHERE_KEYWORD, DELETE_PREFIX.length());
+			Table table = whereStart != -1 ? keyedTables.get(query.substring(DELETE_PREFIX.length(), whereStart)) : null;
+			if(table != null){
+				String[] keyValues = extractKeyValues(table, query, whereStart + WHERE_KEYWORD.length());
+				if(keyValues != null){
+					IndexKey key = encoders.get(table.getName()).encode(keyValues);
+					Map<IndexKey, RowChange> tableChanges = changes.get(table.getName());
+					RowChange change = tableChanges.get(key);
+					if(change == null){
+						change = new RowChange(table, key, keyValues, true);
+						tableChanges.put(key, change);
+					}
+					change.setRow(null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Extracts the primary key values from the conditions of a delete query of the form
+	 * {@code <column>=<value> AND <column>=<value>}, starting at the specified index. The values
+	 * are returned in the order of the table definition, or {@code null} if a primary key column
+	 * is missing or a condition is malformed.
+	 * @param table
+	 * @param query
+	 * @param index
+	 * @return
+	 */
+	private static String[] extractKeyValues(Table table, String query, int index){
+		Map<String, String> conditions = new HashMap<>();
+		int i = index;
+		while(i < query.length()){
+			int separator = query.indexOf('=', i);
+			if(separator == -1){
+				return null;
+			}
+			int end = findValueEnd(query, separator + 1);
+			if(end == -1){
+				return null;
+			}
+			conditions.put(query.substring(i, separator).trim(), query.substring(separator + 1, end).trim());
+
+			if(end == query.length()){
+				break;
+			} else if(!query.startsWith(CONDITION_SEPARATOR, end)){
+				return null;
+			}
+			i = end + CONDITION_SEPARATOR.length();
+		}
+
+		String[] columnNames = table.getColumnNames();
+		int[] pkIndices = table.getPrimaryKeyIndices();
+		String[] keyValues = new String[pkIndices.length];
+		for(int j = 0; j < pkIndices.length; j++){
+			keyValues[j] = conditions.get(columnNames[pkIndices[j]]);
+			if(keyValues[j] == null){
+				return null;
+			}
+		}
+
+		return keyValues;
+	}
+
+	/**
+	 * Returns the index after the value starting at the specified index. Quoted literals, also
+	 * those with a type prefix like {@code X'..'} or {@code DATE'..'}, end at their closing quote,
+	 * other values at the next condition separator or the end of the query. Returns -1 if a
+	 * quote is not closed.
+	 * @param query
+	 * @param index
+	 * @return
+	 */
+	private static int findValueEnd(String query, int index){
+		int i = index;
+		while(i < query.length() && Character.isLetter(query.charAt(i))){
+			i++;
+		}
+
+		if(i < query.length() && query.charAt(i) == '\''){
+			i++;
+			while(i < query.length()){
+				if(query.charAt(i) != '\''){
+					i++;
+				} else if(i + 1 < query.length() && query.charAt(i + 1) == '\''){
+					i += 2;
+				} else {
+					return i + 1;
+				}
+			}
+
+			return -1;
+		}
+
+		int end = query.indexOf(CONDITION_SEPARATOR, index);
+		return end != -1 ? end : query.length();
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package de.ozml.hsqldiffextract.parser;
+
+/**
+ * Determines how much of the data list of a row is tokenized while parsing.
+ */
+public enum ParseMode {
+
+	/**
+	 * All values are tokenized and rows whose value count does not match the column
+	 * count of the table are rejected.
+	 */
+	Full,
+
+	/**
+	 * Only the values up to the last primary key column are tokenized. The remaining values
+	 * are tokenized on first request, a row whose value count does not match the column count
+	 * fails then.
+	 */
+	KeyOnly
+}
\ No newline at end of file
@@ -1,17 +1,39 @@
 package de.ozml.hsqldiffextract.parser;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 
-import de.ozml.hsqldiffextract.common.RowUtil;
+import de.ozml.hsqldiffextract.common.Compression;
+import de.ozml.hsqldiffextract.common.DataFile;
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.common.KeyEncoder;
+import de.ozml.hsqldiffextract.common.PipelineMonitor;
+import de.ozml.hsqldiffextract.common.RowArena;
+import de.ozml.hsqldiffextract.common.RowIndex;
+import de.ozml.hsqldiffextract.common.RowStore;
+import de.ozml.hsqldiffextract.common.StageQueue;
+import de.ozml.hsqldiffextract.entity.Column;
 import de.ozml.hsqldiffextract.entity.Row;
 import de.ozml.hsqldiffextract.entity.Table;
 
@@ -21,66 +43,431 @@ import de.ozml.hsqldiffextract.entity.Table;
  */
 public class RowParser {
 
+	public static final String QUEUE_READ = "read -> parse";
+
+	private static final long MIN_CHUNK_SIZE = 1 << 22;
+	private static final int BLOCK_SIZE = 1 << 20;
+	private static final int BLOCK_QUEUE_CAPACITY = 8;
+
 	/**
-	 * Builds a map of rows for the given table from the data definitions 
-	 * contained in the specified sql file. The entry keys correspond to the rows
+	 * Builds a {@link RowStore} for the given table from the data definitions 
+	 * contained in the specified sql file. The rows are stored by the rows
 	 * primary key value.
 	 * @param table target table
 	 * @param path path to sql file
 	 * @return
 	 */
-	public static Map<String, Row> readRowsFromTable(Table table, String path){
-		Map<String, Row> rows = new HashMap<>();
-		readRowPerLine(table, path, (row, lineNumber) -> rows.put(RowUtil.genIndexKey(row.getPrimaryKey()), row));
+	public static RowStore readRowsFromTable(Table table, String path){
+		return readRowsFromTables(Collections.singletonList(table), path).get(table.getName());
+	}
 
-		return rows;
+	/**
+	 * Builds a {@link RowStore} for each of the given tables from the data definitions contained
+	 * in the specified sql file. The file is read only once for all tables. The result maps
+	 * the table names to the row stores, whose rows are stored by the rows primary key value.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @return
+	 */
+	public static Map<String, RowStore> readRowsFromTables(Collection<Table> tables, String path){
+		return readRowsFromTables(tables, path, ParseMode.Full);
 	}
 
 	/**
-	 * Builds a map from the table rows contained in the specified sql file.
-	 * Each entries key corresponds to the rows primary key and the value holds the line number in the
-	 * sql data file. This map can be used for lazy loading the row data.
-	 * @param table target table
+	 * Builds a {@link RowStore} for each of the given tables like {@link #readRowsFromTables(Collection, String)},
+	 * tokenizing the rows as determined by the parse mode.
+	 * @param tables target tables
 	 * @param path path to sql file
+	 * @param mode parse mode
 	 * @return
 	 */
-	public static Map<String, Integer> readRowLinesFromTable(Table table, String path){
-		Map<String, Integer> rowLines = new HashMap<>();
-		readRowPerLine(table, path, (row, lineNumber) -> rowLines.put(RowUtil.genIndexKey(row.getPrimaryKey()), lineNumber));
+	public static Map<String, RowStore> readRowsFromTables(Collection<Table> tables, String path, ParseMode mode){
+		return readRowsFromTables(tables, path, mode, 1, new PipelineMonitor());
+	}
 
-		return rowLines;
+	/**
+	 * Builds a {@link RowStore} for each of the given tables like {@link #readRowsFromTables(Collection, String, ParseMode)},
+	 * parsing the file in chunks on the specified number of threads.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @param mode parse mode
+	 * @param threadCount number of threads
+	 * @param monitor monitor of the pipeline queues
+	 * @return
+	 */
+	public static Map<String, RowStore> readRowsFromTables(Collection<Table> tables, String path, ParseMode mode, int threadCount, PipelineMonitor monitor){
+		return readTables(tables, path, mode, threadCount, monitor, null, RowStore::new,
+			(store, key, row, reader) -> store.add(key, row), RowStore::addAll);
 	}
 
 	/**
-	 * Reads the sql script file per line and builds a row for the spefified table for any corresponding line.
-	 * Each row found is passed to the handler.
+	 * Builds a {@link RowIndex} from the table rows contained in the specified sql file.
+	 * The index maps each rows primary key to the byte offset and length of the row line in the
+	 * sql data file and to a fingerprint of the row content. It can be used for lazy loading the row data.
 	 * @param table target table
 	 * @param path path to sql file
+	 * @return
+	 */
+	public static RowIndex readRowIndexFromTable(Table table, String path){
+		return readRowIndicesFromTables(Collections.singletonList(table), path).get(table.getName());
+	}
+
+	/**
+	 * Builds a {@link RowIndex} for each of the given tables from the rows contained in the specified
+	 * sql file. The file is read only once for all tables. The result maps the table names to the
+	 * indices as described in {@link #readRowIndexFromTable(Table, String)}.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @return
+	 */
+	public static Map<String, RowIndex> readRowIndicesFromTables(Collection<Table> tables, String path){
+		return readRowIndicesFromTables(tables, path, ParseMode.Full);
+	}
+
+	/**
+	 * Builds a {@link RowIndex} for each of the given tables like {@link #readRowIndicesFromTables(Collection, String)},
+	 * tokenizing the rows as determined by the parse mode.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @param mode parse mode
+	 * @return
+	 */
+	public static Map<String, RowIndex> readRowIndicesFromTables(Collection<Table> tables, String path, ParseMode mode){
+		return readRowIndicesFromTables(tables, path, mode, 1, new PipelineMonitor());
+	}
+
+	/**
+	 * Builds a {@link RowIndex} for each of the given tables like {@link #readRowIndicesFromTables(Collection, String, ParseMode)},
+	 * parsing the file in chunks on the specified number of threads.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @param mode parse mode
+	 * @param threadCount number of threads
+	 * @param monitor monitor of the pipeline queues
+	 * @return
+	 */
+	public static Map<String, RowIndex> readRowIndicesFromTables(Collection<Table> tables, String path, ParseMode mode, int threadCount, PipelineMonitor monitor){
+		return readRowIndicesFromTables(tables, path, mode, threadCount, monitor, null);
+	}
+
+	/**
+	 * Builds a {@link RowIndex} for each of the given tables like {@link #readRowIndicesFromTables(Collection, String, ParseMode, int, PipelineMonitor)}
+	 * from the data file, whose restart points are added while a compressed file is decoded.
+	 * The indices can be used for lazy loading the row data from the data file.
+	 * @param tables target tables
+	 * @param dataFile sql data file
+	 * @param mode parse mode
+	 * @param threadCount number of threads
+	 * @param monitor monitor of the pipeline queues
+	 * @return
+	 */
+	public static Map<String, RowIndex> readRowIndicesFromTables(Collection<Table> tables, DataFile dataFile, ParseMode mode, int threadCount, PipelineMonitor monitor){
+		return readRowIndicesFromTables(tables, dataFile.getPath(), mode, threadCount, monitor, dataFile::addRestartPoint);
+	}
+
+	private static Map<String, RowIndex> readRowIndicesFromTables(Collection<Table> tables, String path, ParseMode mode, int threadCount,
+			PipelineMonitor monitor, BiConsumer<Long, Long> restartHandler){
+		return readTables(tables, path, mode, threadCount, monitor, restartHandler, RowIndex::new,
+			(index, key, row, reader) -> index.add(key, reader.getLineOffset(), reader.getLineLength(), row.getFingerprint()),
+			RowIndex::addAll);
+	}
+
+	/**
+	 * Builds a {@link RowArena} for each of the given tables from the rows contained in the specified
+	 * sql file. The file is read only once for all tables. The raw row lines are copied into the
+	 * arenas outside of the java heap, together with a fingerprint of the row content.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @param mode parse mode
+	 * @return
+	 */
+	public static Map<String, RowArena> readRowArenasFromTables(Collection<Table> tables, String path, ParseMode mode){
+		return readRowArenasFromTables(tables, path, mode, 1, new PipelineMonitor());
+	}
+
+	/**
+	 * Builds a {@link RowArena} for each of the given tables like {@link #readRowArenasFromTables(Collection, String, ParseMode)},
+	 * parsing the file in chunks on the specified number of threads.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @param mode parse mode
+	 * @param threadCount number of threads
+	 * @param monitor monitor of the pipeline queues
+	 * @return
+	 */
+	public static Map<String, RowArena> readRowArenasFromTables(Collection<Table> tables, String path, ParseMode mode, int threadCount, PipelineMonitor monitor){
+		return readTables(tables, path, mode, threadCount, monitor, null, RowArena::new,
+			(arena, key, row, reader) -> arena.add(key, reader.getLineBytes(), row.getFingerprint()),
+			RowArena::addAll);
+	}
+
+	/**
+	 * Reads the rows of the given tables and passes them to a target per table built by the factory.
+	 * The file is split into chunks at line boundaries, which are parsed at the same time on the
+	 * specified number of threads. The targets of the chunks are merged in file order, so the result
+	 * equals the one of a single pass. If reading or parsing any chunk fails, the whole read fails,
+	 * as missing rows would be taken as deleted or inserted ones.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @param mode parse mode
+	 * @param threadCount number of threads
+	 * @param monitor monitor of the pipeline queues
+	 * @param restartHandler receives the restart points of a compressed file, may be null
+	 * @param factory creates an empty target
+	 * @param collector adds a row to a target
+	 * @param merger appends the second target to the first
+	 * @return
+	 * @throws UncheckedIOException if the file could not be read completely
+	 */
+	private static <T> Map<String, T> readTables(Collection<Table> tables, String path, ParseMode mode, int threadCount,
+			PipelineMonitor monitor, BiConsumer<Long, Long> restartHandler, Supplier<T> factory, RowCollector<T> collector, BiConsumer<T, T> merger){
+		long[] bounds;
+		try{
+			bounds = splitFile(path, threadCount);
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+
+		List<Callable<Map<String, T>>> chunks = new ArrayList<>();
+		for(int i = 0; i < bounds.length - 1; i++){
+			long start = bounds[i];
+			long end = bounds[i + 1];
+			chunks.add(() -> {
+				Map<String, T> result = new HashMap<>();
+				Map<String, KeyEncoder> encoders = new HashMap<>();
+				for (Table table : tables) {
+					result.put(table.getName(), factory.get());
+					encoders.put(table.getName(), new KeyEncoder(table));
+				}
+				readRowPerLine(tables, path, start, end, mode, monitor, restartHandler, (row, reader) -> {
+					String tableName = row.getTable().getName();
+					collector.accept(result.get(tableName), encoders.get(tableName).encode(row), row, reader);
+				});
+
+				return result;
+			});
+		}
+
+		Map<String, T> result = null;
+		ExecutorService executor = chunks.size() > 1 ? Executors.newFixedThreadPool(chunks.size()) : null;
+		try{
+			if(executor == null){
+				result = chunks.get(0).call();
+			} else {
+				for (Future<Map<String, T>> chunk : executor.invokeAll(chunks)) {
+					if(result == null){
+						result = chunk.get();
+					} else {
+						Map<String, T> chunkResult = chunk.get();
+						for (Map.Entry<String, T> entry : result.entrySet()) {
+							merger.accept(entry.getValue(), chunkResult.get(entry.getKey()));
+						}
+					}
+				}
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException());
+		} catch(Exception e){
+			Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+			if(cause instanceof IOException){
+				throw new UncheckedIOException((IOException) cause);
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			throw new UncheckedIOException(new IOException(cause));
+		} finally{
+			if(executor != null) executor.shutdown();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Splits the file into at most the specified number of chunks of about equal size. The chunks
+	 * start at line boundaries. Files smaller than {@value #MIN_CHUNK_SIZE} bytes per chunk are split
+	 * into less chunks. The result holds the start offsets of the chunks followed by the file size.
+	 * A compressed file is not split, as it can only be decoded from its start.
+	 * @param path path to sql file
+	 * @param chunkCount
+	 * @return
+	 * @throws IOException
+	 */
+	private static long[] splitFile(String path, int chunkCount) throws IOException {
+		if(Compression.detect(path) != Compression.None){
+			return new long[] {0, Long.MAX_VALUE};
+		}
+
+		long size = new File(path).length();
+		int count = (int) Math.max(Math.min(chunkCount, size / MIN_CHUNK_SIZE), 1);
+		long[] bounds = new long[count + 1];
+		bounds[count] = size;
+		if(count == 1){
+			return bounds;
+		}
+
+		RandomAccessFile file = null;
+		try{
+			file = new RandomAccessFile(path, "r");
+			byte[] buffer = new byte[1 << 13];
+			for(int i = 1; i < count; i++){
+				// Move the bound behind the next line terminator
+				long offset = Math.max(size * i / count - 1, bounds[i - 1]);
+				bounds[i] = size;
+				file.seek(offset);
+				int read;
+				search:
+				while((read = file.read(buffer)) > 0){
+					for(int j = 0; j < read; j++){
+						if(buffer[j] == '\n'){
+							bounds[i] = offset + j + 1;
+							break search;
+						}
+					}
+					offset += read;
+				}
+			}
+		} finally{
+			try{if(file != null) file.close();} catch(Exception e){}
+		}
+
+		return bounds;
+	}
+
+	/**
+	 * Reads the lines of the sql script file which start within the specified byte range and builds
+	 * a row for the associated table out of the specified tables for any corresponding line. The
+	 * start offset must be the start of a line. The lines are recognized by an {@link InsertLexer},
+	 * so each line is dispatched without testing it against every table.
+	 * Each row found is passed to the handler together with the reader, which provides the
+	 * location and the raw bytes of the row line. The file is read by a separate reader stage,
+	 * which passes blocks of whole lines through a bounded queue, so reading and parsing overlap.
+	 * A compressed file is decoded within the reader stage, so decoding and parsing overlap as well.
+	 * A failure of the reader stage is passed with the end of the blocks and thrown.
+	 * @param tables target tables
+	 * @param path path to sql file
+	 * @param start byte offset of the first line
+	 * @param end byte offset after the last line
+	 * @param mode parse mode
+	 * @param monitor monitor of the pipeline queues
+	 * @param restartHandler receives the restart points of a compressed file, may be null
 	 * @param handler
+	 * @throws IOException
 	 */
-	private static void readRowPerLine(Table table, String path, BiConsumer<Row, Integer> handler){
-		String pattern = buildMatchPattern(table);
-		BufferedReader reader = null;
+	private static void readRowPerLine(Collection<Table> tables, String path, long start, long end, ParseMode mode,
+			PipelineMonitor monitor, BiConsumer<Long, Long> restartHandler, RowHandler handler) throws IOException {
+		StageQueue<Block> blocks = monitor.createQueue(QUEUE_READ, BLOCK_QUEUE_CAPACITY);
+		Thread readerStage = new Thread(() -> {
+			try {
+				readBlocks(path, start, end, restartHandler, blocks);
+			} catch(InterruptedException e){}
+		}, "script-reader");
+		readerStage.setDaemon(true);
+		readerStage.start();
+
+		InsertLexer lexer = new InsertLexer(tables);
+		int[] offsets = buildOffsetArray(tables);
 		try{
-			reader = new BufferedReader(new FileReader(path));
-			String line = reader.readLine();
-			int lineNumber = 0;
-
-			// Build row list
-			while(line != null){
-				if(line.matches(pattern)){
-					Row row = extractRow(table, line, pattern);
-					if(row != null){
-						handler.accept(row, lineNumber);
+			Block block = blocks.take();
+			while(block.data != null){
+				ScriptReader reader = new ScriptReader(new ByteArrayInputStream(block.data, 0, block.length), block.offset);
+				String line = reader.readLine();
+
+				// Build row lists
+				while(line != null){
+					if(lexer.accept(line)){
+						Row row = extractRow(lexer.getTable(), line, lexer.getDataStart(), lexer.getDataEnd(), offsets, mode);
+						if(row != null){
+							handler.accept(row, reader);
+						}
 					}
+					line = reader.readLine();
 				}
-				line = reader.readLine();
-				lineNumber++;
+				block = blocks.take();
 			}
-		} catch(IOException e){
-			e.printStackTrace();
+			if(block.error != null){
+				throw new IOException(block.error);
+			}
+		} catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally{
+			readerStage.interrupt();
+		}
+	}
+
+	/**
+	 * Reads the specified byte range of the file in blocks, which are cut behind the last line
+	 * terminator, and puts them into the queue. The end of the range is marked by an empty block,
+	 * which holds the failure if reading failed for any reason, also if an uncompressed file ends
+	 * before the end of the range. Offsets within a compressed file refer to its decoded content.
+	 * @param path path to sql file
+	 * @param start byte offset of the first line
+	 * @param end byte offset after the last line
+	 * @param restartHandler receives the restart points of a compressed file, may be null
+	 * @param blocks target queue
+	 * @throws InterruptedException
+	 */
+	private static void readBlocks(String path, long start, long end, BiConsumer<Long, Long> restartHandler,
+			StageQueue<Block> blocks) throws InterruptedException {
+		InputStream in = null;
+		Throwable error = null;
+		try{
+			Compression compression = Compression.detect(path);
+			if(compression != Compression.None){
+				in = compression.open(path, restartHandler);
+			} else {
+				FileInputStream file = new FileInputStream(path);
+				file.getChannel().position(start);
+				in = file;
+			}
+
+			byte[] data = new byte[BLOCK_SIZE];
+			int length = 0;
+			long offset = start;
+			long remaining = end - start;
+			while(remaining > 0){
+				int read = in.read(data, length, (int) Math.min(data.length - length, remaining));
+				if(read < 0){
+					// The range of a compressed file ends with its content
+					if(compression == Compression.None){
+						throw new EOFException("File " + path + " ends before offset " + end);
+					}
+					break;
+				}
+				length += read;
+				remaining -= read;
+
+				if(remaining > 0 && length == data.length){
+					int cut = length;
+					while(cut > 0 && data[cut - 1] != '\n'){
+						cut--;
+					}
+					if(cut == 0){
+						// Line exceeds the block
+						data = Arrays.copyOf(data, data.length * 2);
+						continue;
+					}
+
+					byte[] next = new byte[Math.max(BLOCK_SIZE, (length - cut) * 2)];
+					System.arraycopy(data, cut, next, 0, length - cut);
+					blocks.put(new Block(offset, data, cut));
+					offset += cut;
+					length -= cut;
+					data = next;
+				}
+			}
+			if(length > 0){
+				blocks.put(new Block(offset, data, length));
+			}
+		} catch(InterruptedException e){
+			throw e;
+		} catch(Throwable e){
+			error = e;
 		} finally{
-			try{if(reader != null) reader.close();} catch(Exception e){}
+			try{if(in != null) in.close();} catch(Exception e){}
+			blocks.put(new Block(end, error));
 		}
 	}
 
@@ -91,36 +478,58 @@ public class RowParser {
 	 * @return
 	 */
 	public static Row extractRow(Table table, String def){
+		return extractRow(table, def, ParseMode.Full);
+	}
+
+	/**
+	 * Builds a single row from the data definition string, tokenizing it as
+	 * determined by the parse mode.
+	 * @param table
+	 * @param def
+	 * @param mode
+	 * @return
+	 */
+	public static Row extractRow(Table table, String def, ParseMode mode){
 		Row row = null;
 		try {
-			String rowPattern = buildMatchPattern(table);
-		return extractRow(table, def, rowPattern);
+			int start = InsertLexer.findDataStart(def, table);
+			int end = InsertLexer.findDataEnd(def);
+			if(start != -1 && end >= start){
+				row = extractRow(table, def, start, end, buildOffsetArray(Collections.singletonList(table)), mode);
+			}
 		} catch (Exception e) {}
 
 		return row;
 	}
 
 	/**
-	 * Builds a row from the data definition string.
+	 * Builds a row from the data list within the specified span of the definition string. The
+	 * offsets array is used as buffer for the tokenizer and must be able to hold one more value
+	 * than the table has columns. In {@link ParseMode#Full} rows whose value count does not match
+	 * the column count are rejected. In {@link ParseMode#KeyOnly} the data list is only tokenized
+	 * up to the last primary key column and rows with less values are rejected, the value count
+	 * is checked once the row is tokenized completely.
 	 * @param table target table
 	 * @param def sql data definition
-	 * @param rowPattern data match pattern
+	 * @param start index of the first data character
+	 * @param end index after the last data character
+	 * @param offsets tokenizer buffer
+	 * @param mode parse mode
 	 * @return
 	 */
-	private static Row extractRow(Table table, String def, String rowPattern){
+	private static Row extractRow(Table table, String def, int start, int end, int[] offsets, ParseMode mode){
 		Row row = null;
-		String[] values = new String[table.getColumns().length];
-		Pattern pattern = Pattern.compile(rowPattern);
-		Matcher matcher = pattern.matcher(def);
-		if(matcher.find()){
-			String rowData = matcher.group(1);
-			String[] rowDataParts = splitRowData(rowData);
-			if(rowDataParts.length == values.length){
-				for(int i = 0; i < rowDataParts.length; i++){
-					values[i] = rowDataParts[i];
-				}
-
-				row = new Row(table, values);
+		int columnCount = table.getColumns().length;
+		int keyCount = mode == ParseMode.KeyOnly ? getKeyValueCount(table) : columnCount;
+		if(keyCount < columnCount){
+			int valueCount = keyCount > 0 ? ValueTokenizer.tokenize(def, start, end, offsets, keyCount) : 0;
+			if(valueCount == keyCount){
+				row = new Row(table, def, start, end, Arrays.copyOf(offsets, keyCount * 2));
+			}
+		} else {
+			int valueCount = ValueTokenizer.tokenize(def, start, end, offsets);
+			if(valueCount == columnCount){
+				row = new Row(table, def, start, end, Arrays.copyOf(offsets, columnCount * 2));
 			}
 		}
 
@@ -128,39 +537,93 @@ public class RowParser {
 	}
 
 	/**
-	 * Returns a data match pattern for the specified table.
-	 * @param table target table
+	 * Returns the number of leading values which contain all primary key values.
+	 * @param table
 	 * @return
 	 */
-	private static String buildMatchPattern(Table table){
-		return "INSERT INTO " + table.getName() + " VALUES\\s*\\((.*)\\)";
+	private static int getKeyValueCount(Table table){
+		Column[] columns = table.getColumns();
+		for(int i = columns.length - 1; i >= 0; i--){
+			if(columns[i].isPrimaryKey()){
+				return i + 1;
+			}
+		}
+
+		return 0;
 	}
 
 	/**
-	 * Splits the data list string to an array of strings. The string is split by ','
-	 * as token, preserving those encapsulated within the single quotes of sql text.
-	 * @param data sql row data list
+	 * Returns a tokenizer buffer which is large enough for the rows of all specified tables.
+	 * @param tables
 	 * @return
 	 */
-	private static String[] splitRowData(String data){
-		List<String> rowData = new ArrayList<>();
-		boolean splitLock = false;
-		for(int i = 0; i < data.length(); i++){
-			char currChar = data.charAt(i);
-			if(currChar == ',' && !splitLock){
-				rowData.add(data.substring(0, i));
-				data = data.substring(i + 1, data.length());
-				i = -1;
-			} else if(currChar == '\''){
-				splitLock = !splitLock;
-			}
+	private static int[] buildOffsetArray(Collection<Table> tables){
+		int maxColumns = 0;
+		for (Table table : tables) {
+			maxColumns = Math.max(maxColumns, table.getColumns().length);
 		}
 
-		if(!data.isEmpty()){
-			rowData.add(data);
+		return new int[(maxColumns + 1) * 2];
+	}
+
+	/**
+	 * Represents a block of whole lines read from a sql file.
+	 */
+	private static class Block {
+
+		private long offset;
+		private byte[] data;
+		private int length;
+		private Throwable error;
+
+		public Block(long offset, byte[] data, int length) {
+			this.offset = offset;
+			this.data = data;
+			this.length = length;
 		}
 
-		return rowData.toArray(new String[rowData.size()]);
+		/**
+		 * Creates the block marking the end of the blocks.
+		 * @param offset
+		 * @param error failure reading ended with, may be null
+		 */
+		public Block(long offset, Throwable error) {
+			this.offset = offset;
+			this.error = error;
+		}
+
+	}
+
+	/**
+	 * Collector which adds the rows found within a sql file to a target.
+	 */
+	@FunctionalInterface
+	private interface RowCollector<T> {
+
+		/**
+		 * Adds the row with the specified key to the target.
+		 * @param target
+		 * @param key
+		 * @param row
+		 * @param reader reader positioned after the row line
+		 */
+		void accept(T target, IndexKey key, Row row, ScriptReader reader);
+
+	}
+
+	/**
+	 * Handler for rows found within a sql file.
+	 */
+	@FunctionalInterface
+	private interface RowHandler {
+
+		/**
+		 * Accepts the row and the reader positioned after its line.
+		 * @param row
+		 * @param reader
+		 */
+		void accept(Row row, ScriptReader reader);
+
 	}
 
 }
\ No newline at end of file
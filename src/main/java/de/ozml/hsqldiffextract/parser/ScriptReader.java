@@ -0,0 +1,153 @@
+package de.ozml.hsqldiffextract.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads a sql script file line by line like a {@link java.io.BufferedReader}, but additionally
+ * keeps track of the byte offset and byte length of each line within the file. Lines are
+ * terminated by {@code \n}, a preceding {@code \r} is not part of the line.
+ */
+public class ScriptReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private InputStream in;
+	private Charset charset;
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private long bufferOffset;
+	private int lineStart;
+	private long lineOffset;
+	private int lineLength;
+
+	public ScriptReader(InputStream in) {
+		this(in, 0);
+	}
+
+	/**
+	 * Creates a reader for a stream which is positioned at the specified byte offset
+	 * of the file. All reported offsets are relative to the start of the file.
+	 * @param in
+	 * @param startOffset
+	 */
+	public ScriptReader(InputStream in, long startOffset) {
+		this.in = in;
+		this.charset = Charset.defaultCharset();
+		this.buffer = new byte[BUFFER_SIZE];
+		this.bufferOffset = startOffset;
+	}
+
+	/**
+	 * Reads the next line or returns {@code null} if the end of the stream is reached.
+	 * @return
+	 * @throws IOException
+	 */
+	public String readLine() throws IOException {
+		int scanStart = position;
+		while(true){
+			for(int i = scanStart; i < limit; i++){
+				if(buffer[i] == '\n'){
+					return takeLine(i, i + 1);
+				}
+			}
+
+			scanStart = limit - position;
+			if(!fill()){
+				return position < limit ? takeLine(limit, limit) : null;
+			}
+			scanStart += position;
+		}
+	}
+
+	/**
+	 * Returns the byte offset of the last line read.
+	 * @return
+	 */
+	public long getLineOffset() {
+		return lineOffset;
+	}
+
+	/**
+	 * Returns the byte length of the last line read, without line terminator.
+	 * @return
+	 */
+	public int getLineLength() {
+		return lineLength;
+	}
+
+	/**
+	 * Returns the raw bytes of the last line read, without line terminator. The returned
+	 * buffer is only valid until the next line is read.
+	 * @return
+	 */
+	public ByteBuffer getLineBytes() {
+		return ByteBuffer.wrap(buffer, lineStart, lineLength);
+	}
+
+	/**
+	 * Returns the byte offset of the next line to be read.
+	 * @return
+	 */
+	public long getOffset() {
+		return bufferOffset + position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Decodes the line ending at the specified index and moves the position to the next line.
+	 * @param end
+	 * @param next
+	 * @return
+	 */
+	private String takeLine(int end, int next) {
+		int length = end - position;
+		if(length > 0 && buffer[end - 1] == '\r'){
+			length--;
+		}
+		lineStart = position;
+		lineOffset = bufferOffset + position;
+		lineLength = length;
+
+		String line = new String(buffer, position, length, charset);
+		position = next;
+
+		return line;
+	}
+
+	/**
+	 * Moves the pending bytes to the start of the buffer and reads further bytes from the
+	 * stream. The buffer is enlarged if a single line exceeds its size.
+	 * @return false if the end of the stream is reached
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		int pending = limit - position;
+		if(position > 0){
+			System.arraycopy(buffer, position, buffer, 0, pending);
+			bufferOffset += position;
+			position = 0;
+			limit = pending;
+		} else if(pending == buffer.length){
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		int read = in.read(buffer, limit, buffer.length - limit);
+		if(read <= 0){
+			return false;
+		}
+		limit += read;
+
+		return true;
+	}
+
+}
\ No newline at end of file
@@ -1,8 +1,8 @@
 package de.ozml.hsqldiffextract.parser;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -12,6 +12,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import de.ozml.hsqldiffextract.common.Compression;
 import de.ozml.hsqldiffextract.entity.Column;
 import de.ozml.hsqldiffextract.entity.ColumnType;
 import de.ozml.hsqldiffextract.entity.Table;
@@ -41,7 +42,7 @@ public class TableParser {
 
 	/**
 	 * Builds a map of tables from the definitions contained in the
-	 * specified sql file.
+	 * specified sql file, which may be compressed.
 	 * @param path path to sql file
 	 * @return
 	 */
@@ -51,7 +52,7 @@ public class TableParser {
 
 		BufferedReader reader = null;
 		try{
-			reader = new BufferedReader(new FileReader(path));
+			reader = new BufferedReader(new InputStreamReader(Compression.detect(path).open(path)));
 			String line = reader.readLine();
 
 			// Build table list
@@ -0,0 +1,106 @@
+package de.ozml.hsqldiffextract.parser;
+
+/**
+ * Splits sql data lists into their values within a single pass. Instead of creating strings
+ * the start and end offset of each value is written into a caller provided array, two entries
+ * per value. The tokenizer is aware of the hsqldb literal syntax: character literals with doubled
+ * quotes ({@code 'O''Brien'}), binary and bit literals ({@code X'..'}, {@code B'..'}), unicode
+ * escaped literals ({@code U&'..'}) and bracketed values like arrays, which may all contain commas.
+ */
+public class ValueTokenizer {
+
+	/**
+	 * Tokenizes the data list within the specified span of the string. The offsets of the values
+	 * are written to the array as pairs of start index and end index, leading and trailing white
+	 * spaces excluded. If the list contains more values than fit into the array, -1 is returned.
+	 * @param data string containing the data list
+	 * @param start index of the first data character
+	 * @param end index after the last data character
+	 * @param offsets target array for the value offsets
+	 * @return number of values or -1
+	 */
+	public static int tokenize(String data, int start, int end, int[] offsets) {
+		return tokenize(data, start, end, offsets, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Tokenizes the data list like {@link #tokenize(String, int, int, int[])}, but stops after
+	 * the specified number of values. The remaining part of the list is not examined.
+	 * @param data string containing the data list
+	 * @param start index of the first data character
+	 * @param end index after the last data character
+	 * @param offsets target array for the value offsets
+	 * @param limit maximum number of values to tokenize
+	 * @return number of values or -1
+	 */
+	public static int tokenize(String data, int start, int end, int[] offsets, int limit) {
+		if(start >= end){
+			return 0;
+		}
+
+		int count = 0;
+		int valueStart = start;
+		boolean quoted = false;
+		int depth = 0;
+		for(int i = start; i < end; i++){
+			char currChar = data.charAt(i);
+			if(quoted){
+				if(currChar == '\''){
+					// A doubled quote is an escaped quote within the literal
+					if(i + 1 < end && data.charAt(i + 1) == '\''){
+						i++;
+					} else {
+						quoted = false;
+					}
+				}
+			} else if(currChar == '\''){
+				quoted = true;
+			} else if(currChar == '(' || currChar == '['){
+				depth++;
+			} else if(currChar == ')' || currChar == ']'){
+				depth--;
+			} else if(currChar == ',' && depth == 0){
+				if(count * 2 + 1 >= offsets.length){
+					return -1;
+				}
+				count = addValue(data, valueStart, i, offsets, count);
+				if(count == limit){
+					return count;
+				}
+				valueStart = i + 1;
+			}
+		}
+
+		if(count * 2 + 1 >= offsets.length){
+			return -1;
+		}
+
+		return addValue(data, valueStart, end, offsets, count);
+	}
+
+	/**
+	 * Writes the trimmed offsets of the value to the array and returns the new value count.
+	 * @param data
+	 * @param start
+	 * @param end
+	 * @param offsets
+	 * @param count
+	 * @return
+	 */
+	private static int addValue(String data, int start, int end, int[] offsets, int count) {
+		while(start < end && Character.isWhitespace(data.charAt(start))){
+			start++;
+		}
+		while(end > start && Character.isWhitespace(data.charAt(end - 1))){
+			end--;
+		}
+
+		offsets[count * 2] = start;
+		offsets[count * 2 + 1] = end;
+
+		return count + 1;
+	}
+
+	private ValueTokenizer() {}
+
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package de.ozml.hsqldiffextract;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.parser.ChangeLogReader;
+import de.ozml.hsqldiffextract.parser.RowParser;
+
+/**
+ * Writes changes with a {@link ChangeLogBuffer} and reads them back with a {@link ChangeLogReader}.
+ */
+public class ChangeLogBufferTest {
+
+	private Table table;
+
+	@Before
+	public void setUp() {
+		table = new Table("T", new Column[] {
+			new Column("ID", ColumnType.Numeric, true, true, false),
+			new Column("NAME", ColumnType.Character, false, false, true),
+			new Column("AGE", ColumnType.Numeric, false, false, true)
+		});
+	}
+
+	@Test
+	public void testReadsWrittenChanges() throws IOException {
+		ChangeLogBuffer buffer = new ChangeLogBuffer(7, 3);
+		buffer.insert(row("1,'O''Brien, \u00e4',NULL"));
+		buffer.update(row("2,'b',20"), row("2,'b',21"));
+		buffer.delete(row("3,'c',30"));
+		buffer.delete(table, new String[] {"4"});
+		assertEquals(4, buffer.getCount());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ChangeLogBuffer.writeHeader(out, 7, table);
+		buffer.writeTo(out);
+
+		try(ChangeLogReader reader = new ChangeLogReader(new ByteArrayInputStream(out.toByteArray()))){
+			assertTrue(reader.next());
+			assertEquals(ChangeLogReader.INSERT, reader.getOperation());
+			assertEquals(7, reader.getTableId());
+			assertEquals("T", reader.getTableName());
+			assertArrayEquals(new String[] {"ID", "NAME", "AGE"}, reader.getColumnNames());
+			assertArrayEquals(new int[] {0}, reader.getKeyIndices());
+			assertEquals("1", reader.getKeyValue(0));
+			assertEquals("'O''Brien, \u00e4'", reader.getValue(1));
+			assertEquals("NULL", reader.getValue(2));
+
+			assertTrue(reader.next());
+			assertEquals(ChangeLogReader.UPDATE, reader.getOperation());
+			assertEquals("2", reader.getKeyValue(0));
+			assertFalse(reader.isColumnSet(1));
+			assertNull(reader.getValue(1));
+			assertTrue(reader.isColumnSet(2));
+			assertEquals("21", reader.getValue(2));
+
+			assertTrue(reader.next());
+			assertEquals(ChangeLogReader.DELETE, reader.getOperation());
+			assertEquals("3", reader.getKeyValue(0));
+			assertFalse(reader.isColumnSet(0));
+
+			assertTrue(reader.next());
+			assertEquals(ChangeLogReader.DELETE, reader.getOperation());
+			assertEquals("4", reader.getKeyValue(0));
+
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsOtherContent() throws IOException {
+		new ChangeLogReader(new ByteArrayInputStream("INSERT INTO T".getBytes("UTF-8"))).close();
+	}
+
+	private Row row(String values) {
+		return RowParser.extractRow(table, "INSERT INTO T VALUES(" + values + ")");
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package de.ozml.hsqldiffextract;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ozml.hsqldiffextract.common.EagerRowSource;
+import de.ozml.hsqldiffextract.common.RowSource;
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.parser.RowParser;
+
+/**
+ * Compares the output of a {@link DiffProcessor} split into shards with the one of a single pass.
+ */
+public class DiffProcessorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Table table;
+	private String originalPath;
+	private String changedPath;
+
+	@Before
+	public void setUp() throws IOException {
+		table = new Table("T", new Column[] {
+			new Column("ID", ColumnType.Numeric, true, true, false),
+			new Column("NAME", ColumnType.Character, false, false, true)
+		});
+
+		List<String> original = new ArrayList<>();
+		List<String> changed = new ArrayList<>();
+		for(int id = 0; id < 50000; id++){
+			if(id < 45000){
+				original.add("INSERT INTO T VALUES(" + id + ",'o" + id + "')");
+			}
+			if(id % 7 != 0 || id >= 45000){
+				changed.add("INSERT INTO T VALUES(" + id + ",'" + (id % 5 == 0 ? "c" : "o") + id + "')");
+			}
+		}
+		originalPath = writeScript("original.script", original);
+		changedPath = writeScript("changed.script", changed);
+	}
+
+	@Test
+	public void testShardedSqlOutputEqualsSinglePass() throws IOException {
+		assertShardedOutputEqualsSinglePass(OutputFormat.Sql);
+	}
+
+	@Test
+	public void testShardedChangeLogOutputEqualsSinglePass() throws IOException {
+		assertShardedOutputEqualsSinglePass(OutputFormat.ChangeLog);
+	}
+
+	private void assertShardedOutputEqualsSinglePass(OutputFormat format) throws IOException {
+		byte[] serial = process(format, "serial", 1, null);
+		byte[] sharded = process(format, "sharded", 4, null);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		byte[] shared;
+		try{
+			shared = process(format, "shared", 4, executor);
+		} finally{
+			executor.shutdown();
+		}
+
+		assertTrue(serial.length > 0);
+		assertArrayEquals(serial, sharded);
+		assertArrayEquals(serial, shared);
+	}
+
+	private byte[] process(OutputFormat format, String name, int shardCount, ExecutorService shardExecutor) throws IOException {
+		String outputDir = new File(folder.getRoot(), name).getPath();
+		DiffProcessor processor = new DiffProcessor("T", outputDir);
+		processor.setTable(table);
+		processor.setFormat(format);
+		processor.setShardCount(shardCount);
+		processor.setShardExecutor(shardExecutor);
+		assertTrue(processor.process(readSource(originalPath), readSource(changedPath)));
+
+		return Files.readAllBytes(new File(outputDir + "\\" + "T" + format.getExtension()).toPath());
+	}
+
+	private RowSource readSource(String path) {
+		return new EagerRowSource(table, RowParser.readRowsFromTables(Collections.singletonList(table), path).get("T"));
+	}
+
+	private String writeScript(String name, List<String> lines) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+		return file.getPath();
+	}
+
+}
\ No newline at end of file
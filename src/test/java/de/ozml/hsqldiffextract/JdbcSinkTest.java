@@ -0,0 +1,258 @@
+package de.ozml.hsqldiffextract;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ozml.hsqldiffextract.common.ControlState;
+import de.ozml.hsqldiffextract.common.EagerRowSource;
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.common.RowSource;
+import de.ozml.hsqldiffextract.common.RunJournal;
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+import de.ozml.hsqldiffextract.parser.RowParser;
+
+/**
+ * Applies changes through a {@link JdbcSink} to an in-memory hsqldb database.
+ */
+public class JdbcSinkTest {
+
+	private static int databaseCount;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Table table;
+	private String url;
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException {
+		table = new Table("T", new Column[] {
+			new Column("ID", ColumnType.Numeric, true, true, false),
+			new Column("NAME", ColumnType.Character, false, false, true),
+			new Column("DATA", ColumnType.Binary, false, false, true)
+		});
+		url = "jdbc:hsqldb:mem:sink" + (++databaseCount);
+		connection = DriverManager.getConnection(url);
+		try(Statement statement = connection.createStatement()){
+			statement.execute("CREATE TABLE T (ID BIGINT PRIMARY KEY, NAME VARCHAR(40), DATA VARBINARY(8))");
+		}
+		connection.setAutoCommit(false);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		try(Statement statement = connection.createStatement()){
+			statement.execute("SHUTDOWN");
+		}
+		connection.close();
+	}
+
+	@Test
+	public void testAppliesInsertUpdateDelete() throws Exception {
+		execute("INSERT INTO T VALUES(1,'a',NULL)", "INSERT INTO T VALUES(2,'b',NULL)", "INSERT INTO T VALUES(3,'c',NULL)");
+
+		JdbcSink sink = new JdbcSink(connection, table);
+		sink.delete(row("1,'a',NULL"));
+		sink.update(row("2,'b',NULL"), row("2,'it''s',X'0aff'"));
+		sink.insert(row("4,U&'\\00e4\\+01f600',NULL"));
+		sink.commit();
+		sink.close();
+
+		assertEquals(1, sink.getInsertCount());
+		assertEquals(1, sink.getUpdateCount());
+		assertEquals(1, sink.getDeleteCount());
+
+		Map<Long, String> rows = readNames();
+		assertEquals(Arrays.asList(2L, 3L, 4L), new ArrayList<>(rows.keySet()));
+		assertEquals("it's", rows.get(2L));
+		assertEquals("c", rows.get(3L));
+		assertEquals("\u00e4\ud83d\ude00", rows.get(4L));
+		try(Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery("SELECT DATA FROM T WHERE ID = 2")){
+			assertTrue(result.next());
+			assertArrayEquals(new byte[] {0x0a, (byte) 0xff}, result.getBytes(1));
+		}
+	}
+
+	@Test
+	public void testExecutesFullBatches() throws Exception {
+		JdbcSink sink = new JdbcSink(connection, table);
+		sink.setBatchSize(2);
+
+		sink.insert(row("1,'a',NULL"));
+		assertEquals(0, readNames().size());
+		sink.insert(row("2,'b',NULL"));
+		assertEquals(2, readNames().size());
+		sink.insert(row("3,'c',NULL"));
+		assertEquals(2, readNames().size());
+		sink.commit();
+		assertEquals(3, readNames().size());
+		sink.close();
+	}
+
+	@Test
+	public void testCommitsAtKeyPositionAfterInterval() throws Exception {
+		List<IndexKey> positions = new ArrayList<>();
+		JdbcSink sink = new JdbcSink(connection, table);
+		sink.setBatchSize(2);
+		sink.setCommitInterval(3);
+		sink.setCommitListener(positions::add);
+
+		for(int id = 1; id <= 5; id++){
+			sink.insert(row(id + ",'n" + id + "',NULL"));
+			sink.commit(IndexKey.of(id + 1));
+		}
+		sink.close();
+		connection.rollback();
+
+		assertEquals(Collections.singletonList(IndexKey.of(4)), positions);
+		assertEquals(Arrays.asList(1L, 2L, 3L), new ArrayList<>(readNames().keySet()));
+	}
+
+	@Test
+	public void testRejectsMalformedLiterals() throws Exception {
+		JdbcSink sink = new JdbcSink(connection, table);
+		try{
+			sink.insert(row("1,'a',X'0g'"));
+			fail("Malformed binary literal accepted");
+		} catch(IOException e){
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+		try{
+			sink.insert(row("2,U&'\\+zzzzzz',NULL"));
+			fail("Malformed unicode literal accepted");
+		} catch(IOException e){
+			assertTrue(e.getCause() instanceof SQLException);
+		}
+		sink.close();
+	}
+
+	@Test
+	public void testResumesAfterJournaledCommit() throws Exception {
+		List<String> original = new ArrayList<>();
+		List<String> changed = new ArrayList<>();
+		Map<Long, String> expected = new TreeMap<>();
+		for(int id = 0; id < 4000; id++){
+			if(id < 3000){
+				original.add("INSERT INTO T VALUES(" + id + ",'o" + id + "',NULL)");
+			}
+			if(id % 10 != 0 || id >= 3000){
+				String name = id % 3 == 0 ? "c" + id : "o" + id;
+				changed.add("INSERT INTO T VALUES(" + id + ",'" + name + "',NULL)");
+				expected.put((long) id, name);
+			}
+		}
+		String originalPath = writeScript("original.script", original);
+		String changedPath = writeScript("changed.script", changed);
+		execute(original.toArray(new String[original.size()]));
+		connection.commit();
+
+		String journalPath = new File(folder.getRoot(), "journal.txt").getPath();
+		List<String> inputs = Arrays.asList(originalPath, changedPath);
+		List<String> outputSettings = Collections.singletonList("jdbc");
+
+		// The first run stops at the first check of the control state
+		RunJournal journal = new RunJournal(journalPath);
+		assertTrue(journal.open(false, inputs, outputSettings));
+		ControlState control = new ControlState();
+		control.stop();
+		DiffProcessor processor = createProcessor(journal, control);
+		assertFalse(processor.process(readSource(originalPath), readSource(changedPath)));
+		journal.close();
+		int[] firstCounts = processor.getAppliedCounts();
+		assertTrue(firstCounts[0] + firstCounts[1] + firstCounts[2] > 0);
+
+		// The resumed run continues at the committed position without applying changes twice
+		journal = new RunJournal(journalPath);
+		assertTrue(journal.open(true, inputs, outputSettings));
+		assertNotNull(journal.getPosition("T"));
+		processor = createProcessor(journal, new ControlState());
+		assertTrue(processor.process(readSource(originalPath), readSource(changedPath)));
+		assertTrue(journal.isCompleted("T"));
+		assertNull(journal.getPosition("T"));
+		journal.close();
+		int[] secondCounts = processor.getAppliedCounts();
+
+		assertEquals(1000, firstCounts[0] + secondCounts[0]);
+		assertEquals(900, firstCounts[1] + secondCounts[1]);
+		assertEquals(300, firstCounts[2] + secondCounts[2]);
+		assertEquals(expected, readNames());
+	}
+
+	private DiffProcessor createProcessor(RunJournal journal, ControlState control) {
+		DiffProcessor processor = new DiffProcessor("T", folder.getRoot().getPath());
+		processor.setTable(table);
+		processor.setJdbcUrl(url);
+		processor.setJdbcBatchSize(50);
+		processor.setJdbcCommitInterval(200);
+		processor.setJournal(journal);
+		processor.setControl(control);
+
+		return processor;
+	}
+
+	private Row row(String values) {
+		return RowParser.extractRow(table, "INSERT INTO T VALUES(" + values + ")");
+	}
+
+	private RowSource readSource(String path) {
+		return new EagerRowSource(table, RowParser.readRowsFromTables(Collections.singletonList(table), path).get("T"));
+	}
+
+	private String writeScript(String name, List<String> lines) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+		return file.getPath();
+	}
+
+	private void execute(String... sqls) throws SQLException {
+		try(Statement statement = connection.createStatement()){
+			for (String sql : sqls) {
+				statement.execute(sql);
+			}
+		}
+	}
+
+	private Map<Long, String> readNames() throws SQLException {
+		Map<Long, String> rows = new TreeMap<>();
+		try(Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery("SELECT ID, NAME FROM T")){
+			while(result.next()){
+				rows.put(result.getLong(1), result.getString(2));
+			}
+		}
+
+		return rows;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package de.ozml.hsqldiffextract.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Orders the {@link IndexKey} instances built by a {@link KeyEncoder}.
+ */
+public class KeyEncoderTest {
+
+	@Test
+	public void testOrdersNumericKeysByValue() {
+		KeyEncoder encoder = new KeyEncoder(new Table("T", new Column[] {
+			new Column("ID", ColumnType.Numeric, true, true, false)
+		}));
+
+		List<IndexKey> keys = Arrays.asList(encode(encoder, "-3"), encode(encoder, "9"), encode(encoder, "10"), encode(encoder, "100"));
+		assertTrue(keys.get(0).isNumeric());
+		assertTrue(RowUtil.isSorted(keys));
+		assertTrue(RowUtil.compareIndexKeys(encode(encoder, "9"), encode(encoder, "10")) < 0);
+		assertEquals(encode(encoder, "10"), IndexKey.parse(encode(encoder, "10").toString()));
+	}
+
+	@Test
+	public void testOrdersCompositeKeysByColumns() {
+		KeyEncoder encoder = new KeyEncoder(new Table("T", new Column[] {
+			new Column("A", ColumnType.Numeric, true, true, false),
+			new Column("B", ColumnType.Character, true, true, false)
+		}));
+
+		List<IndexKey> keys = Arrays.asList(encode(encoder, "NULL", "'z'"), encode(encoder, "-1", "'z'"), encode(encoder, "9", "'b'"),
+			encode(encoder, "10", "'a'"), encode(encoder, "10", "'a''b'"), encode(encoder, "10", "'b'"));
+		assertFalse(keys.get(0).isNumeric());
+		assertTrue(RowUtil.isSorted(keys));
+		assertEquals(encode(encoder, "10", "'a''b'"), IndexKey.parse(encode(encoder, "10", "'a''b'").toString()));
+	}
+
+	private static IndexKey encode(KeyEncoder encoder, String... values) {
+		return encoder.encode(values);
+	}
+
+}
\ No newline at end of file
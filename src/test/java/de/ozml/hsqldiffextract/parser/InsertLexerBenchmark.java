@@ -0,0 +1,185 @@
+package de.ozml.hsqldiffextract.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.Row;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Compares the throughput of the {@link InsertLexer} based row extraction with the former one,
+ * which tested each line against a regular expression per table and compiled the pattern again
+ * for each extracted row. Both are run over the same generated insert lines of several tables,
+ * several rounds each, the first rounds serve as warm up.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes de.ozml.hsqldiffextract.parser.InsertLexerBenchmark [rows] [rounds]}.
+ */
+public class InsertLexerBenchmark {
+
+	private static final int TABLE_COUNT = 8;
+	private static final int COLUMN_COUNT = 6;
+
+	public static void main(String[] args) {
+		int rowCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		List<Table> tables = buildTables();
+		List<String> lines = buildLines(tables, rowCount);
+
+		for(int round = 1; round <= rounds; round++){
+			long start = System.nanoTime();
+			int regexRows = extractWithRegex(tables, lines);
+			long regexTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			int lexerRows = extractWithLexer(tables, lines);
+			long lexerTime = System.nanoTime() - start;
+
+			if(regexRows != lexerRows){
+				throw new IllegalStateException("Row counts differ: " + regexRows + " / " + lexerRows);
+			}
+			System.out.println(String.format("Round %d: regex %d rows/ms, lexer %d rows/ms, speedup %.1fx", round,
+				rowsPerMs(regexRows, regexTime), rowsPerMs(lexerRows, lexerTime), (double) regexTime / lexerTime));
+		}
+	}
+
+	/**
+	 * Extracts the rows like the former {@code RowParser.readRowPerLine}.
+	 * @param tables
+	 * @param lines
+	 * @return number of rows
+	 */
+	private static int extractWithRegex(List<Table> tables, List<String> lines) {
+		List<String> patterns = new ArrayList<>();
+		for (Table table : tables) {
+			patterns.add(buildMatchPattern(table));
+		}
+
+		int count = 0;
+		for (String line : lines) {
+			for(int i = 0; i < tables.size(); i++){
+				if(line.matches(patterns.get(i))){
+					Row row = extractRow(tables.get(i), line, patterns.get(i));
+					if(row != null){
+						count++;
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Extracts the rows like {@code RowParser.readRowPerLine}.
+	 * @param tables
+	 * @param lines
+	 * @return number of rows
+	 */
+	private static int extractWithLexer(List<Table> tables, List<String> lines) {
+		InsertLexer lexer = new InsertLexer(tables);
+		int count = 0;
+		for (String line : lines) {
+			if(lexer.accept(line)){
+				Row row = RowParser.extractRow(lexer.getTable(), line, ParseMode.Full);
+				if(row != null){
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private static long rowsPerMs(int rows, long nanos) {
+		return rows * 1000000L / Math.max(nanos, 1);
+	}
+
+	private static List<Table> buildTables() {
+		List<Table> tables = new ArrayList<>();
+		for(int i = 0; i < TABLE_COUNT; i++){
+			Column[] columns = new Column[COLUMN_COUNT];
+			columns[0] = new Column("ID", ColumnType.Numeric, true, true, false);
+			columns[1] = new Column("NAME", ColumnType.Character, false, false, true);
+			columns[2] = new Column("CITY", ColumnType.Character, false, false, true);
+			columns[3] = new Column("AMOUNT", ColumnType.Decimal, false, false, true);
+			columns[4] = new Column("ACTIVE", ColumnType.Boolean, false, false, true);
+			columns[5] = new Column("CREATED", ColumnType.Date, false, false, true);
+			tables.add(new Table("TABLE_" + i, columns));
+		}
+
+		return tables;
+	}
+
+	/**
+	 * Builds insert lines spread over the tables, mixed with some lines which are no inserts.
+	 * @param tables
+	 * @param rowCount
+	 * @return
+	 */
+	private static List<String> buildLines(List<Table> tables, int rowCount) {
+		List<String> lines = new ArrayList<>();
+		for(int i = 0; i < rowCount; i++){
+			if(i % 50 == 0){
+				lines.add("SET SCHEMA PUBLIC");
+			}
+			Table table = tables.get(i % tables.size());
+			lines.add("INSERT INTO " + table.getName() + " VALUES(" + i + ",'Name, " + i + "','City " + (i % 97)
+				+ "'," + (i % 1000) + "." + (i % 100) + "," + (i % 2 == 0 ? "TRUE" : "FALSE") + ",'2020-01-" + (10 + i % 18) + " 12:00:00')");
+		}
+
+		return lines;
+	}
+
+	// Former regular expression based extraction
+
+	private static String buildMatchPattern(Table table) {
+		return "INSERT INTO " + table.getName() + " VALUES\\s*\\((.*)\\)";
+	}
+
+	private static Row extractRow(Table table, String def, String rowPattern) {
+		Row row = null;
+		String[] values = new String[table.getColumns().length];
+		Pattern pattern = Pattern.compile(rowPattern);
+		Matcher matcher = pattern.matcher(def);
+		if(matcher.find()){
+			String rowData = matcher.group(1);
+			String[] rowDataParts = splitRowData(rowData);
+			if(rowDataParts.length == values.length){
+				for(int i = 0; i < rowDataParts.length; i++){
+					values[i] = rowDataParts[i];
+				}
+
+				row = new Row(table, values);
+			}
+		}
+
+		return row;
+	}
+
+	private static String[] splitRowData(String data) {
+		List<String> rowData = new ArrayList<>();
+		boolean splitLock = false;
+		for(int i = 0; i < data.length(); i++){
+			char currChar = data.charAt(i);
+			if(currChar == ',' && !splitLock){
+				rowData.add(data.substring(0, i));
+				data = data.substring(i + 1, data.length());
+				i = -1;
+			} else if(currChar == '\''){
+				splitLock = !splitLock;
+			}
+		}
+
+		if(!data.isEmpty()){
+			rowData.add(data);
+		}
+
+		return rowData.toArray(new String[rowData.size()]);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package de.ozml.hsqldiffextract.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ozml.hsqldiffextract.common.IndexKey;
+import de.ozml.hsqldiffextract.entity.Column;
+import de.ozml.hsqldiffextract.entity.ColumnType;
+import de.ozml.hsqldiffextract.entity.RowChange;
+import de.ozml.hsqldiffextract.entity.Table;
+
+/**
+ * Collapses the queries of HSQLDB log files with {@link LogParser}.
+ */
+public class LogParserTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Table table;
+
+	@Before
+	public void setUp() {
+		table = new Table("T", new Column[] {
+			new Column("ID", ColumnType.Numeric, true, true, false),
+			new Column("NAME", ColumnType.Character, false, false, true)
+		});
+	}
+
+	@Test
+	public void testAppliesCommittedQueriesPerSession() throws IOException {
+		Map<IndexKey, RowChange> changes = readChanges(
+			"/*C1*/INSERT INTO T VALUES(1,'a')",
+			"/*C2*/INSERT INTO T VALUES(2,'b')",
+			"/*C1*/COMMIT",
+			"/*C2*/INSERT INTO T VALUES(3,'c')",
+			"ROLLBACK",
+			"/*C3*/INSERT INTO T VALUES(4,'d')");
+
+		assertEquals(1, changes.size());
+		assertTrue(changes.get(IndexKey.of(1)).isInsert());
+		assertEquals("'a'", changes.get(IndexKey.of(1)).getRow().getValue(1));
+	}
+
+	@Test
+	public void testDropsRowsInsertedAndDeleted() throws IOException {
+		Map<IndexKey, RowChange> changes = readChanges(
+			"/*C1*/INSERT INTO T VALUES(1,'a')",
+			"DELETE FROM T WHERE ID=1",
+			"COMMIT");
+
+		RowChange change = changes.get(IndexKey.of(1));
+		assertFalse(change.isInsert());
+		assertFalse(change.isUpdate());
+		assertFalse(change.isDelete());
+	}
+
+	@Test
+	public void testCollapsesDeleteAndInsertIntoUpdate() throws IOException {
+		Map<IndexKey, RowChange> changes = readChanges(
+			"/*C1*/DELETE FROM T WHERE ID=1",
+			"INSERT INTO T VALUES(1,'O''Brien')",
+			"DELETE FROM T WHERE ID=2",
+			"COMMIT");
+
+		RowChange update = changes.get(IndexKey.of(1));
+		assertTrue(update.isUpdate());
+		assertEquals("'O''Brien'", update.getRow().getValue(1));
+		RowChange delete = changes.get(IndexKey.of(2));
+		assertTrue(delete.isDelete());
+		assertNull(delete.getRow());
+		assertArrayEquals(new String[] {"2"}, delete.getKeyValues());
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void testFailsIfLogCannotBeRead() {
+		LogParser.readChangesFromLog(Arrays.asList(table), folder.getRoot().getPath());
+	}
+
+	private Map<IndexKey, RowChange> readChanges(String... lines) throws IOException {
+		File file = folder.newFile("db.log");
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+
+		return LogParser.readChangesFromLog(Arrays.asList(table), file.getPath()).get("T");
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package de.ozml.hsqldiffextract.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Splits data lists holding hsqldb literals with {@link ValueTokenizer}.
+ */
+public class ValueTokenizerTest {
+
+	@Test
+	public void testKeepsEscapedQuotesWithinCharacterLiterals() {
+		assertArrayEquals(new String[] {"1", "'O''Brien'", "'a, b'", "''''"}, tokenize("1,'O''Brien','a, b',''''"));
+	}
+
+	@Test
+	public void testKeepsBinaryAndUnicodeLiterals() {
+		assertArrayEquals(new String[] {"X'0aff'", "B'1010'", "U&'\\00e4, \\+01f600'", "NULL"},
+			tokenize("X'0aff',B'1010',U&'\\00e4, \\+01f600',NULL"));
+	}
+
+	@Test
+	public void testKeepsBracketedValuesAndTrimsWhiteSpaces() {
+		assertArrayEquals(new String[] {"ARRAY[1,2]", "(3, 4)", "'x'"}, tokenize(" ARRAY[1,2] , (3, 4),'x' "));
+	}
+
+	@Test
+	public void testStopsAtLimit() {
+		String data = "1,'a,b',X'00'";
+		int[] offsets = new int[8];
+		assertEquals(2, ValueTokenizer.tokenize(data, 0, data.length(), offsets, 2));
+		assertEquals("'a,b'", data.substring(offsets[2], offsets[3]));
+	}
+
+	@Test
+	public void testRejectsTooManyValues() {
+		String data = "1,2,3";
+		assertEquals(-1, ValueTokenizer.tokenize(data, 0, data.length(), new int[4]));
+		assertEquals(0, ValueTokenizer.tokenize(data, 2, 2, new int[4]));
+	}
+
+	private static String[] tokenize(String data) {
+		int[] offsets = new int[32];
+		int count = ValueTokenizer.tokenize(data, 0, data.length(), offsets);
+		String[] values = new String[count];
+		for(int i = 0; i < count; i++){
+			values[i] = data.substring(offsets[i * 2], offsets[i * 2 + 1]);
+		}
+
+		return values;
+	}
+
+}
\ No newline at end of file